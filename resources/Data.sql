@@ -1,3 +1,8 @@
+/*
+ * Version 1 of the schema. Later changes (DISCOUNT column, indexes) live in
+ * src/main/resources/db/migration and are applied by the app at startup.
+ */
+
 /* Setting up PROD DB */
 create database prod;
 use prod;
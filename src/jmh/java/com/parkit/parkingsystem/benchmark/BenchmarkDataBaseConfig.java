@@ -0,0 +1,77 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.PoolConstants;
+import org.flywaydb.core.Flyway;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/*
+ * Embedded H2 database in MySQL mode, built from the same migrations as the real schema
+ */
+public class BenchmarkDataBaseConfig extends DataBaseConfig {
+
+    private final String name;
+    private final boolean statementCache;
+
+    public BenchmarkDataBaseConfig(String name) {
+        this(name, true);
+    }
+
+    /*
+     * Without the statement cache, every prepareStatement parses its SQL again
+     */
+    public BenchmarkDataBaseConfig(String name, boolean statementCache) {
+        this.name = name;
+        this.statementCache = statementCache;
+    }
+
+    @Override
+    protected String getJdbcUrl() {
+        return "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    @Override
+    protected String getUsername() {
+        return "sa";
+    }
+
+    @Override
+    protected String getPassword() {
+        return "";
+    }
+
+    @Override
+    protected String getDriverClassName() {
+        return "org.h2.Driver";
+    }
+
+    @Override
+    protected Properties getDataSourceProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("QUERY_CACHE_SIZE",
+                String.valueOf(statementCache ? PoolConstants.STATEMENT_CACHE_SIZE : 0));
+        return properties;
+    }
+
+    public void createSchema(int carSpots, int bikeSpots) throws SQLException {
+        Flyway flyway = getFlywayConfiguration().cleanDisabled(false).load();
+        flyway.clean();
+        flyway.migrate();
+        try (Connection con = getDataSource().getConnection();
+                PreparedStatement ps = con.prepareStatement(
+                        "insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(?,true,?)")) {
+            for (int parkingNumber = 1; parkingNumber <= carSpots + bikeSpots; parkingNumber++) {
+                ps.setInt(1, parkingNumber);
+                ps.setString(2, (parkingNumber <= carSpots ? ParkingType.CAR : ParkingType.BIKE)
+                        .toString());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+}
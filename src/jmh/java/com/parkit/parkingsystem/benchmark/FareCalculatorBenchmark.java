@@ -0,0 +1,91 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.FareEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FareCalculatorBenchmark {
+
+    @Param({"CAR", "BIKE"})
+    private ParkingType parkingType;
+
+    @Param({"false", "true"})
+    private boolean discount;
+
+    private static final int BATCH_SIZE = 10_000;
+
+    private FareCalculatorService fareCalculatorService;
+    private Ticket ticket;
+    private FareEngine fareEngine;
+    private byte[] parkingTypes;
+    private long[] inTimes;
+    private long[] outTimes;
+    private boolean[] discounts;
+    private long[] prices;
+
+    @Setup
+    public void setUp() {
+        fareCalculatorService = new FareCalculatorService();
+        long now = System.currentTimeMillis();
+        ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, parkingType, false));
+        ticket.setInTime(new Date(now - 3 * 60 * 60 * 1000));
+        ticket.setOutTime(new Date(now));
+        ticket.setDiscount(discount);
+
+        fareEngine = new FareEngine();
+        parkingTypes = new byte[BATCH_SIZE];
+        inTimes = new long[BATCH_SIZE];
+        outTimes = new long[BATCH_SIZE];
+        discounts = new boolean[BATCH_SIZE];
+        prices = new long[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            parkingTypes[i] = (byte) parkingType.ordinal();
+            inTimes[i] = now - (i % (24 * 60)) * 60 * 1000;
+            outTimes[i] = now;
+            discounts[i] = discount;
+        }
+    }
+
+    @Benchmark
+    public double calculateFare() {
+        fareCalculatorService.calculateFare(ticket);
+        return ticket.getPrice();
+    }
+
+    @Benchmark
+    public long priceInCents() {
+        return fareEngine.priceInCents(parkingType, inTimes[0], outTimes[0], discount);
+    }
+
+    /*
+     * Tickets priced per second is BATCH_SIZE times the score
+     */
+    @Benchmark
+    public long[] priceBatchInCents() {
+        fareEngine.priceInCents(parkingTypes, inTimes, outTimes, discounts, prices, 0, BATCH_SIZE);
+        return prices;
+    }
+}
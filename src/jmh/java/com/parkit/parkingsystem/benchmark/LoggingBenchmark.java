@@ -0,0 +1,73 @@
+package com.parkit.parkingsystem.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The entry/exit flow of ParkingFlowBenchmark, transactional and without the in-memory indexes so
+ * that every call goes through DataBaseConfig, under each logging setup. The setup is chosen per
+ * fork as log4j reads it once: synchronous or asynchronous loggers, and the DAO chatter logged
+ * (DEBUG, as every call used to log it at INFO) or not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LoggingBenchmark {
+
+    private static final String CONFIGURATION =
+            "-Dlog4j.configurationFile=log4j2-benchmark.properties";
+    private static final String SYNCHRONOUS =
+            "-DLog4jContextSelector=org.apache.logging.log4j.core.selector.ClassLoaderContextSelector";
+    private static final String CHATTER = "-Dparkingsystem.logLevel=debug";
+
+    private ParkingFlowBenchmark parkingFlow;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        parkingFlow = new ParkingFlowBenchmark();
+        parkingFlow.setUp(true, false);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        parkingFlow.tearDown();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIGURATION, SYNCHRONOUS, CHATTER})
+    public void synchronousWithChatter() throws Exception {
+        parkingFlow.entryAndExit();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIGURATION, SYNCHRONOUS})
+    public void synchronous() throws Exception {
+        parkingFlow.entryAndExit();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIGURATION, CHATTER})
+    public void asynchronousWithChatter() throws Exception {
+        parkingFlow.entryAndExit();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {CONFIGURATION})
+    public void asynchronous() throws Exception {
+        parkingFlow.entryAndExit();
+    }
+}
@@ -0,0 +1,99 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * A full vehicle entry followed by its exit through ParkingService, with the console input stubbed
+ * and the console output discarded
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParkingFlowBenchmark {
+
+    @Param({"true", "false"})
+    private boolean transactional;
+
+    @Param({"true", "false"})
+    private boolean inMemory;
+
+    private BenchmarkDataBaseConfig dataBaseConfig;
+    private ParkingService parkingService;
+    private PrintStream console;
+
+    static class StubInputReaderUtil extends InputReaderUtil {
+        @Override
+        public int readSelection() {
+            return 1;
+        }
+
+        @Override
+        public String readVehicleRegistrationNumber() {
+            return "ABCDEF";
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        setUp(transactional, inMemory);
+    }
+
+    void setUp(boolean transactional, boolean inMemory) throws Exception {
+        dataBaseConfig = new BenchmarkDataBaseConfig("parkingFlow");
+        dataBaseConfig.createSchema(100, 100);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        if (inMemory) {
+            parkingSpotDAO.loadAvailableSpots();
+            ticketDAO.loadKnownPlates();
+            ticketDAO.loadOpenTickets();
+        }
+        parkingService = new ParkingService(new StubInputReaderUtil(), parkingSpotDAO, ticketDAO,
+                new FareCalculatorService(),
+                transactional ? new UnitOfWork(dataBaseConfig) : new UnitOfWork());
+        console = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {}
+        }));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(console);
+        BenchmarkDataBaseConfig.shutdown();
+    }
+
+    @Benchmark
+    public void entryAndExit() throws Exception {
+        parkingService.processIncomingVehicle();
+        parkingService.processExitingVehicle();
+    }
+}
@@ -0,0 +1,82 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.EntryRequest;
+import com.parkit.parkingsystem.model.ExitRequest;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of parsing the DAO statements again on every call. The embedded database stands in for
+ * MySQL: its per-session query cache plays the part of the Connector/J prepared statement cache.
+ * The in-memory indexes are not loaded, so every DAO call prepares its statement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementCacheBenchmark {
+
+    @Param({"true", "false"})
+    private boolean statementCache;
+
+    private BenchmarkDataBaseConfig dataBaseConfig;
+    private GateService gateService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataBaseConfig = new BenchmarkDataBaseConfig("statementCache" + statementCache,
+                statementCache);
+        dataBaseConfig.createSchema(100, 100);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        gateService = new GateService(parkingSpotDAO, ticketDAO, new FareCalculatorService(),
+                new UnitOfWork(dataBaseConfig));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDataBaseConfig.shutdown();
+    }
+
+    @Benchmark
+    public void entryAndExit() throws Exception {
+        Date now = new Date();
+        gateService.enter(new EntryRequest(ParkingType.CAR, "ABCDEF", now));
+        gateService.exit(new ExitRequest("ABCDEF", now));
+    }
+
+    @Benchmark
+    public void prepareStatement() throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET)) {
+            ps.setString(1, "ABCDEF");
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * TicketDAO calls against an embedded database holding some ticket history, with and without the
+ * in-memory caches loaded
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TicketDAOBenchmark {
+
+    private static final int HISTORY = 10_000;
+    private static final int PLATES = 1_000;
+
+    @Param({"true", "false"})
+    private boolean inMemory;
+
+    private BenchmarkDataBaseConfig dataBaseConfig;
+    private TicketDAO ticketDAO;
+    private Ticket closedTicket;
+    private Ticket newTicket;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dataBaseConfig = new BenchmarkDataBaseConfig("ticketDAO");
+        dataBaseConfig.createSchema(100, 0);
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < HISTORY; i++) {
+            Ticket ticket = newTicket("PLATE-" + (i % PLATES), 1 + i % 100, now - 7_200_000);
+            ticket.setOutTime(new Date(now - 3_600_000));
+            ticket.setPrice(1.5);
+            ticketDAO.saveTicket(ticket);
+        }
+        ticketDAO.saveTicket(newTicket("OPEN-1", 1, now));
+        closedTicket = newTicket("PLATE-1", 1, now - 7_200_000);
+        closedTicket.setId(1);
+        closedTicket.setOutTime(new Date(now - 3_600_000));
+        closedTicket.setPrice(1.5);
+        newTicket = newTicket("NEW-1", 2, now);
+        newTicket.setOutTime(new Date(now));
+        if (inMemory) {
+            ticketDAO.loadKnownPlates();
+            ticketDAO.loadOpenTickets();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkDataBaseConfig.shutdown();
+    }
+
+    private static Ticket newTicket(String vehicleRegNumber, int parkingNumber, long inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(inTime));
+        return ticket;
+    }
+
+    @Benchmark
+    public Ticket getTicket() {
+        return ticketDAO.getTicket("OPEN-1");
+    }
+
+    @Benchmark
+    public int getNbTicket() {
+        return ticketDAO.getNbTicket("PLATE-1");
+    }
+
+    @Benchmark
+    public boolean isRecurringUser_knownPlate() {
+        return ticketDAO.isRecurringUser("PLATE-1");
+    }
+
+    @Benchmark
+    public boolean isRecurringUser_newPlate() {
+        return ticketDAO.isRecurringUser("UNKNOWN");
+    }
+
+    @Benchmark
+    public boolean saveTicket() {
+        return ticketDAO.saveTicket(newTicket);
+    }
+
+    @Benchmark
+    public boolean updateTicket() {
+        return ticketDAO.updateTicket(closedTicket);
+    }
+}
@@ -1,29 +1,365 @@
 package com.parkit.parkingsystem;
 
+import com.parkit.parkingsystem.config.ConnectionState;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.config.GarageDataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.dao.*;
+import com.parkit.parkingsystem.constants.ArchiveConstants;
+import com.parkit.parkingsystem.constants.PoolConstants;
+import com.parkit.parkingsystem.constants.ServerConstants;
+import com.parkit.parkingsystem.constants.WriteBehindConstants;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.ExportReport;
+import com.parkit.parkingsystem.model.ImportReport;
+import com.parkit.parkingsystem.model.RepricingReport;
+import com.parkit.parkingsystem.server.GateHttpServer;
 import com.parkit.parkingsystem.service.*;
+import com.parkit.parkingsystem.util.AppendOnlyJournal;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.flywaydb.core.api.FlywayException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class App {
     private static final Logger logger = LogManager.getLogger("App");
+
+    /*
+     * A command that runs once against the database, which is then shut down
+     */
+    private interface BatchCommand {
+        void run() throws Exception;
+    }
+
     public static void main(String args[]) throws Exception {
         logger.info("Initializing Parking System");
         InputReaderUtil inputReaderUtil = new InputReaderUtil();
+        List<DataBaseConfig> garages = GarageDataBaseConfig.fromSystemProperties();
+        if (!garages.isEmpty()) {
+            runGarages(args, garages, inputReaderUtil);
+            return;
+        }
+        DataBaseConfig dataBaseConfig = newDataBaseConfig();
+        try {
+            dataBaseConfig.migrate();
+        } catch (FlywayException e) {
+            logger.error("Unable to migrate DB schema", e);
+        }
+        String command = args.length > 0 ? args[0] : "";
+        switch (command) {
+            case "reprice":
+                runBatch(() -> reprice(args, dataBaseConfig));
+                break;
+            case "export":
+                runBatch(() -> export(args, dataBaseConfig));
+                break;
+            case "archive":
+                runBatch(() -> archive(dataBaseConfig));
+                break;
+            case "backfill":
+                runBatch(() -> backfill(dataBaseConfig));
+                break;
+            case "import":
+                runBatch(() -> bulkImport(args, dataBaseConfig));
+                break;
+            default:
+                runGates(args, dataBaseConfig, inputReaderUtil);
+        }
+    }
+
+    private static void runBatch(BatchCommand batchCommand) throws Exception {
+        try {
+            batchCommand.run();
+        } finally {
+            DataBaseConfig.shutdown();
+        }
+    }
+
+    /*
+     * serve [port] for the HTTP gates, the console otherwise
+     */
+    private static void runGates(String[] args, DataBaseConfig dataBaseConfig,
+            InputReaderUtil inputReaderUtil) throws IOException {
+        scheduleMetricsDump();
+        scheduleArchive(dataBaseConfig);
+        TicketWriteBehind ticketWriteBehind = startWriteBehind(dataBaseConfig);
+        // Offline mode needs the journal to keep what the gates do while the database is down
+        ConnectionState connectionState = ticketWriteBehind == null ? null : new ConnectionState();
+        if (ticketWriteBehind != null) {
+            ticketWriteBehind.connectionState = connectionState;
+        }
         ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.ticketWriteBehind = ticketWriteBehind;
+        parkingSpotDAO.connectionState = connectionState;
+        parkingSpotDAO.loadAvailableSpots();
+        if (ticketWriteBehind != null) {
+            ticketWriteBehind.parkingSpotDAO = parkingSpotDAO;
+        }
         TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.ticketWriteBehind = ticketWriteBehind;
+        ticketDAO.connectionState = connectionState;
+        ticketDAO.loadKnownPlates();
+        ticketDAO.loadOpenTickets();
         FareCalculatorService fareCalculatorService = new FareCalculatorService();
-        ParkingService parkingService = new ParkingService(
-                inputReaderUtil,
+        GateService gateService = new GateService(
                 parkingSpotDAO,
                 ticketDAO,
-                fareCalculatorService);
+                fareCalculatorService,
+                new UnitOfWork(dataBaseConfig, connectionState));
+        if (args.length > 0 && "serve".equals(args[0])) {
+            serve(args, gateService, parkingSpotDAO, ticketWriteBehind);
+            return;
+        }
+        ParkingService parkingService = new ParkingService(inputReaderUtil, gateService);
         InteractiveShell interactiveShell = new InteractiveShell(inputReaderUtil, parkingService);
         try {
             interactiveShell.loadInterface();
         } catch (Exception e) {
             logger.error("Error occured running Parking System", e);
+        } finally {
+            shutdown(ticketWriteBehind);
+        }
+    }
+
+    /*
+     * MySQL by default, -Dparkingsystem.storage=embedded keeps the data in local files instead,
+     * see EmbeddedDataBaseConfig
+     */
+    private static DataBaseConfig newDataBaseConfig() {
+        if ("embedded".equals(System.getProperty("parkingsystem.storage"))) {
+            logger.info("Using embedded storage");
+            return new EmbeddedDataBaseConfig();
+        }
+        return new DataBaseConfig();
+    }
+
+    /*
+     * With -Dparkingsystem.garages, each garage has its own database and DAOs and the gate server
+     * routes on the garage parameter. Without serve, the console runs for the first garage.
+     * Write-behind, offline mode and the batch commands work on the default database only.
+     */
+    private static void runGarages(String[] args, List<DataBaseConfig> garages,
+            InputReaderUtil inputReaderUtil) throws IOException {
+        scheduleMetricsDump();
+        GarageRouter garageRouter = new GarageRouter(garages);
+        garageRouter.migrateAndLoad();
+        FareCalculatorService fareCalculatorService = new FareCalculatorService();
+        Map<String, GateService> gateServices = new LinkedHashMap<>();
+        Map<String, ParkingSpotDAO> parkingSpotDAOs = new LinkedHashMap<>();
+        for (String garageId : garageRouter.getGarageIds()) {
+            gateServices.put(garageId, new GateService(
+                    garageRouter.getParkingSpotDAO(garageId),
+                    garageRouter.getTicketDAO(garageId),
+                    fareCalculatorService,
+                    new UnitOfWork(garageRouter.getDataBaseConfig(garageId))));
+            parkingSpotDAOs.put(garageId, garageRouter.getParkingSpotDAO(garageId));
+        }
+        if (args.length > 0 && "serve".equals(args[0])) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : ServerConstants.DEFAULT_PORT;
+            GateHttpServer gateHttpServer = new GateHttpServer(new InetSocketAddress(port),
+                    gateServices, parkingSpotDAOs);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                gateHttpServer.stop();
+                garageRouter.shutdown();
+                DataBaseConfig.shutdown();
+            }));
+            gateHttpServer.start();
+            return;
+        }
+        ParkingService parkingService = new ParkingService(inputReaderUtil,
+                gateServices.values().iterator().next());
+        try {
+            new InteractiveShell(inputReaderUtil, parkingService).loadInterface();
+        } catch (Exception e) {
+            logger.error("Error occured running Parking System", e);
+        } finally {
+            garageRouter.shutdown();
+            DataBaseConfig.shutdown();
+        }
+    }
+
+    /*
+     * Ticket writes leave the gates' critical path when started with
+     * -Dparkingsystem.writeBehind=true, which also lets the gates work offline. Journaled writes
+     * of a previous run are sent first, so that the indexes loaded next see them.
+     */
+    private static TicketWriteBehind startWriteBehind(DataBaseConfig dataBaseConfig)
+            throws IOException {
+        if (!Boolean.getBoolean("parkingsystem.writeBehind")) {
+            return null;
+        }
+        AppendOnlyJournal journal = new AppendOnlyJournal(
+                Paths.get(WriteBehindConstants.JOURNAL_FILE),
+                WriteBehindConstants.JOURNAL_CAPACITY_BYTES, true);
+        TicketWriteBehind ticketWriteBehind = new TicketWriteBehind(journal);
+        ticketWriteBehind.dataBaseConfig = dataBaseConfig;
+        ticketWriteBehind.start();
+        if (!ticketWriteBehind.flush(PoolConstants.BORROW_TIMEOUT_MS)) {
+            logger.error("Journaled ticket writes could not all be sent yet");
+        }
+        return ticketWriteBehind;
+    }
+
+    /*
+     * Metrics are always published through JMX, -Dparkingsystem.metricsDumpSeconds=n also logs
+     * them every n seconds
+     */
+    private static void scheduleMetricsDump() {
+        long periodSeconds = Long.getLong("parkingsystem.metricsDumpSeconds", 0);
+        if (periodSeconds > 0) {
+            Metrics.scheduleDump(periodSeconds);
+        }
+    }
+
+    /*
+     * -Dparkingsystem.archive=true moves the tickets closed for a month to the archive, at start
+     * and then every hour
+     */
+    private static void scheduleArchive(DataBaseConfig dataBaseConfig) {
+        if (Boolean.getBoolean("parkingsystem.archive")) {
+            newTicketArchiveService(dataBaseConfig).start(ArchiveConstants.INTERVAL_MINUTES);
+        }
+    }
+
+    /*
+     * archive, moves the tickets closed for a month to the archive once
+     */
+    private static void archive(DataBaseConfig dataBaseConfig) {
+        long archived = newTicketArchiveService(dataBaseConfig).archive();
+        System.out.println(archived < 0 ? "Archival stopped before the end, see the logs"
+                : archived + " closed tickets archived");
+    }
+
+    /*
+     * backfill, sets the summary of every plate from its tickets, with the gates closed
+     */
+    private static void backfill(DataBaseConfig dataBaseConfig) {
+        VehicleSummaryBackfillService backfillService =
+                new VehicleSummaryBackfillService(new UnitOfWork(dataBaseConfig));
+        backfillService.vehicleSummaryDAO.dataBaseConfig = dataBaseConfig;
+        long summarized = backfillService.backfill();
+        System.out.println(summarized < 0 ? "Backfill stopped before the end, see the logs"
+                : summarized + " plates summarized");
+    }
+
+    private static TicketArchiveService newTicketArchiveService(DataBaseConfig dataBaseConfig) {
+        TicketArchiveService ticketArchiveService =
+                new TicketArchiveService(new UnitOfWork(dataBaseConfig));
+        ticketArchiveService.ticketArchiveDAO.dataBaseConfig = dataBaseConfig;
+        return ticketArchiveService;
+    }
+
+    private static void shutdown(TicketWriteBehind ticketWriteBehind) {
+        if (ticketWriteBehind != null) {
+            ticketWriteBehind.stop(PoolConstants.BORROW_TIMEOUT_MS);
+        }
+        DataBaseConfig.shutdown();
+    }
+
+    /*
+     * serve [port], runs until the process is stopped
+     */
+    private static void serve(String[] args, GateService gateService,
+            ParkingSpotDAO parkingSpotDAO, TicketWriteBehind ticketWriteBehind)
+            throws IOException {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : ServerConstants.DEFAULT_PORT;
+        GateHttpServer gateHttpServer =
+                new GateHttpServer(new InetSocketAddress(port), gateService, parkingSpotDAO);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            gateHttpServer.stop();
+            shutdown(ticketWriteBehind);
+        }));
+        gateHttpServer.start();
+    }
+
+    /*
+     * reprice [from to [correct]], dates as yyyy-MM-dd, to being excluded. Without dates every
+     * closed ticket is checked. Prices are only written back when correct is given.
+     */
+    private static void reprice(String[] args, DataBaseConfig dataBaseConfig)
+            throws ParseException {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+        Date from = args.length > 2 ? dateFormat.parse(args[1]) : new Date(0);
+        Date to = args.length > 2 ? dateFormat.parse(args[2]) : dateFormat.parse("9999-12-31");
+        boolean correct = args.length > 3 && "correct".equals(args[3]);
+        RepricingService repricingService = new RepricingService(new UnitOfWork(dataBaseConfig));
+        repricingService.ticketBatchDAO.dataBaseConfig = dataBaseConfig;
+        RepricingReport report = repricingService.reprice(from, to, correct);
+        for (RepricingReport.Mismatch mismatch : report.getMismatches()) {
+            System.out.println("Ticket " + mismatch.getTicketId() + " priced "
+                    + mismatch.getStoredPrice() + " instead of " + mismatch.getExpectedPrice());
+        }
+        System.out.println(report.getScannedCount() + " tickets checked, "
+                + report.getMismatchCount() + " mismatches, " + report.getCorrectedCount()
+                + " corrected, difference " + report.getDifferenceInCents() / 100.0);
+        if (!report.isCompleted()) {
+            System.out.println("Re-pricing stopped before the end, see the logs");
+        }
+    }
+
+    /*
+     * export [directory], current directory by default. Each export sends the tickets closed
+     * since the previous one.
+     */
+    private static void export(String[] args, DataBaseConfig dataBaseConfig) {
+        TicketExportService ticketExportService =
+                new TicketExportService(Paths.get(args.length > 1 ? args[1] : "."));
+        ticketExportService.ticketBatchDAO.dataBaseConfig = dataBaseConfig;
+        ExportReport report = ticketExportService.export();
+        System.out.println(report.getExportedCount() + " tickets exported to "
+                + report.getFileCount() + " files, up to ticket " + report.getLastExportedId());
+        if (!report.isCompleted()) {
+            System.out.println("Export stopped before the end, see the logs");
+        }
+    }
+
+    /*
+     * import spots|tickets file [startLine]. Spots go first, tickets refer to them. A start line
+     * resumes an import that stopped, from the last committed line it printed.
+     */
+    private static void bulkImport(String[] args, DataBaseConfig dataBaseConfig)
+            throws IOException {
+        if (args.length < 3 || !("spots".equals(args[1]) || "tickets".equals(args[1]))) {
+            System.out.println("Usage: import spots|tickets file [startLine]");
+            return;
+        }
+        long startLine = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        BulkImportDAO bulkImportDAO = new BulkImportDAO();
+        bulkImportDAO.dataBaseConfig = dataBaseConfig;
+        BulkImportDAO.ProgressListener listener = progress -> System.out.println(
+                progress.getImportedCount() + " rows imported, committed up to line "
+                        + progress.getLastCommittedLine());
+        ImportReport report;
+        try (Reader csv = Files.newBufferedReader(Paths.get(args[2]), StandardCharsets.UTF_8)) {
+            report = "spots".equals(args[1])
+                    ? bulkImportDAO.importParkingSpots(csv, startLine, listener)
+                    : bulkImportDAO.importTickets(csv, startLine, listener);
+        }
+        for (ImportReport.Rejection rejection : report.getRejections()) {
+            System.out.println("Line " + rejection.getLineNumber() + " rejected: "
+                    + rejection.getReason());
+        }
+        System.out.println(report.getReadCount() + " rows read, " + report.getImportedCount()
+                + " imported, " + report.getRejectedCount() + " rejected");
+        if (!report.isCompleted()) {
+            System.out.println("Import stopped before the end, see the logs. Resume with start line "
+                    + report.getLastCommittedLine());
         }
     }
 }
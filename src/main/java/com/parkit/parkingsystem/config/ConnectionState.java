@@ -0,0 +1,50 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+
+/*
+ * Whether the database is taken as reachable. Once a connection failure is seen, the code able to
+ * work offline stops calling the database, so that gates do not wait for the pool timeout on each
+ * call, until the write-behind writer manages to write again.
+ */
+public class ConnectionState {
+
+    private static final Logger logger = LogManager.getLogger("ConnectionState");
+
+    private volatile boolean offline;
+
+    public boolean isOffline() {
+        return offline;
+    }
+
+    public void setOffline(boolean offline) {
+        if (this.offline != offline) {
+            this.offline = offline;
+            if (offline) {
+                logger.error("Database unreachable, gates switch to offline mode");
+            } else {
+                logger.info("Database reachable again, offline events replayed");
+            }
+        }
+    }
+
+    /*
+     * Tells a database that cannot be reached from a statement the database rejected
+     */
+    public static boolean isConnectionFailure(Exception e) {
+        if (!(e instanceof SQLException)) {
+            return e instanceof ClassNotFoundException;
+        }
+        String sqlState = ((SQLException) e).getSQLState();
+        return e instanceof SQLTransientConnectionException
+                || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLRecoverableException
+                || (sqlState != null && sqlState.startsWith("08"));
+    }
+}
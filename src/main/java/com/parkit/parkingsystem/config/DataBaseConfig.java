@@ -1,32 +1,239 @@
 package com.parkit.parkingsystem.config;
 
+import com.parkit.parkingsystem.constants.GarageConstants;
+import com.parkit.parkingsystem.constants.PoolConstants;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.sql.DataSource;
 
 public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    private static final LatencyHistogram borrowLatency =
+            Metrics.histogram("DataBaseConfig.borrowConnection");
+    private static final Counter borrowFailures =
+            Metrics.counter("DataBaseConfig.borrowConnection.failures");
+    private static final Counter replicaReads = Metrics.counter("DataBaseConfig.replicaReads");
+    private static final Counter replicaFailures =
+            Metrics.counter("DataBaseConfig.replicaReads.failures");
+
+    /*
+     * One pool per JDBC url, shared by every DataBaseConfig instance pointing to the same database
+     */
+    private static final Map<String, HikariDataSource> dataSources = new ConcurrentHashMap<>();
+
+    /*
+     * Per primary JDBC url, what was written through this process
+     */
+    private static final Map<String, RecentWrites> recentWrites = new ConcurrentHashMap<>();
+
+    /*
+     * Per replica JDBC url, until when reads stay on the primary after a failure
+     */
+    private static final Map<String, Long> replicaRetryTimes = new ConcurrentHashMap<>();
+
+    /*
+     * Inside a UnitOfWork, returns the connection of the running transaction
+     */
     public Connection getConnection() throws ClassNotFoundException, SQLException {
-        logger.info("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod?serverTimezone=Europe/Paris",
-                "root",
-                "root");
+        DataSource dataSource = getDataSource();
+        Connection con = UnitOfWork.getBoundConnection(dataSource);
+        if (con != null) {
+            return con;
+        }
+        logger.debug("Borrow DB connection from pool");
+        long startNanos = System.nanoTime();
+        try {
+            return dataSource.getConnection();
+        } catch (SQLException e) {
+            borrowFailures.increment();
+            throw e;
+        } finally {
+            borrowLatency.recordSince(startNanos);
+        }
+    }
+
+    public DataSource getDataSource() {
+        return dataSources.computeIfAbsent(getJdbcUrl(), url -> createDataSource(url, false));
+    }
+
+    /*
+     * Connection for a read-only query about key, or about nothing in particular when key is
+     * null. Goes to the replica, unless a unit of work is running or key was written through this
+     * process less than the replica lag ago, so that callers always read their own writes. Falls
+     * back to the primary while the replica cannot give connections.
+     */
+    public Connection getReadConnection(String key) throws ClassNotFoundException, SQLException {
+        String replicaUrl = getReplicaJdbcUrl();
+        if (replicaUrl == null || UnitOfWork.getBoundConnection(getDataSource()) != null
+                || (key != null && getRecentWrites().writtenWithin(key, getReplicaMaxLagMs()))) {
+            return getConnection();
+        }
+        Long retryTime = replicaRetryTimes.get(replicaUrl);
+        if (retryTime != null && System.currentTimeMillis() < retryTime) {
+            return getConnection();
+        }
+        try {
+            Connection con = dataSources
+                    .computeIfAbsent(replicaUrl, url -> createDataSource(url, true))
+                    .getConnection();
+            replicaReads.increment();
+            return con;
+        } catch (SQLException e) {
+            replicaFailures.increment();
+            replicaRetryTimes.put(replicaUrl,
+                    System.currentTimeMillis() + PoolConstants.REPLICA_RETRY_DELAY_MS);
+            logger.error("Replica unavailable, reading from the primary", e);
+            return getConnection();
+        }
+    }
+
+    /*
+     * Keeps the reads about key on the primary for the replica lag, counted from the commit when
+     * inside a unit of work. Called by every write that a read right after must see.
+     */
+    public void markWritten(String key) {
+        RecentWrites writes = getRecentWrites();
+        writes.mark(key);
+        UnitOfWork.afterCommit(() -> writes.mark(key));
+    }
+
+    private RecentWrites getRecentWrites() {
+        return recentWrites.computeIfAbsent(getJdbcUrl(),
+                url -> new RecentWrites(PoolConstants.RECENT_WRITE_SLOTS));
+    }
+
+    /*
+     * Read replica of the database, given with -Dparkingsystem.replicaUrl and reached with the
+     * same credentials. Null when every query goes to the primary.
+     */
+    protected String getReplicaJdbcUrl() {
+        return System.getProperty("parkingsystem.replicaUrl");
+    }
+
+    protected long getReplicaMaxLagMs() {
+        return PoolConstants.REPLICA_MAX_LAG_MS;
+    }
+
+    /*
+     * Garage whose spots and tickets are in this database
+     */
+    public String getGarageId() {
+        return GarageConstants.DEFAULT_GARAGE_ID;
+    }
+
+    protected String getJdbcUrl() {
+        return "jdbc:mysql://localhost:3306/prod?serverTimezone=Europe/Paris&useCursorFetch=true";
+    }
+
+    protected String getUsername() {
+        return "root";
+    }
+
+    protected String getPassword() {
+        return "root";
+    }
+
+    protected String getDriverClassName() {
+        return "com.mysql.cj.jdbc.Driver";
+    }
+
+    protected HikariConfig getPoolConfig() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("parking-pool-" + dataSources.size());
+        config.setDriverClassName(getDriverClassName());
+        config.setJdbcUrl(getJdbcUrl());
+        config.setUsername(getUsername());
+        config.setPassword(getPassword());
+        config.setMinimumIdle(PoolConstants.MINIMUM_IDLE);
+        config.setMaximumPoolSize(PoolConstants.MAXIMUM_POOL_SIZE);
+        config.setIdleTimeout(PoolConstants.IDLE_TIMEOUT_MS);
+        config.setMaxLifetime(PoolConstants.MAX_LIFETIME_MS);
+        config.setConnectionTimeout(PoolConstants.BORROW_TIMEOUT_MS);
+        config.setValidationTimeout(PoolConstants.VALIDATION_TIMEOUT_MS);
+        // Lets the app start while the database is still down, borrowers get the error instead
+        config.setInitializationFailTimeout(-1);
+        config.setDataSourceProperties(getDataSourceProperties());
+        return config;
+    }
+
+    /*
+     * Driver settings of every pooled connection. Statements are prepared on the MySQL server and
+     * kept open in a per-connection LRU cache, so closing one hands it back to the cache and the
+     * next DAO call preparing the same SQL skips the parse round trip.
+     */
+    protected Properties getDataSourceProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("useServerPrepStmts", "true");
+        properties.setProperty("cachePrepStmts", "true");
+        properties.setProperty("prepStmtCacheSize",
+                String.valueOf(PoolConstants.STATEMENT_CACHE_SIZE));
+        properties.setProperty("prepStmtCacheSqlLimit",
+                String.valueOf(PoolConstants.STATEMENT_CACHE_SQL_LIMIT));
+        // Auto-commit and isolation are tracked locally instead of queried on every transaction
+        properties.setProperty("useLocalSessionState", "true");
+        // Batches of inserts are sent as multi-row inserts, one round trip per batch
+        properties.setProperty("rewriteBatchedStatements", "true");
+        return properties;
+    }
+
+    private HikariDataSource createDataSource(String jdbcUrl, boolean readOnly) {
+        logger.info("Create DB connection pool{}", readOnly ? " for the read replica" : "");
+        HikariConfig config = getPoolConfig();
+        config.setJdbcUrl(jdbcUrl);
+        config.setReadOnly(readOnly);
+        return new HikariDataSource(config);
+    }
+
+    /*
+     * Brings the schema up to date with the versioned scripts of db/migration. A database created
+     * by resources/Data.sql before migrations existed is taken as version 1.
+     */
+    public void migrate() {
+        logger.info("Migrating DB schema");
+        getFlywayConfiguration().load().migrate();
+    }
+
+    protected FluentConfiguration getFlywayConfiguration() {
+        return Flyway.configure()
+                .dataSource(getDataSource())
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .placeholders(Collections.singletonMap("garageId", getGarageId()));
+    }
+
+    public static void shutdown() {
+        for (HikariDataSource dataSource : dataSources.values()) {
+            logger.info("Closing DB connection pool {}", dataSource.getPoolName());
+            dataSource.close();
+        }
+        dataSources.clear();
+        replicaRetryTimes.clear();
     }
 
     public void closeConnection(Connection con) {
-        if (con != null) {
+        if (con != null && !UnitOfWork.isBound(con)) {
             try {
                 con.close();
-                logger.info("Closing DB connection");
+                logger.debug("Returning DB connection to pool");
             } catch (SQLException e) {
                 logger.error("Error while closing connection", e);
             }
@@ -37,7 +244,7 @@ public class DataBaseConfig {
         if (ps != null) {
             try {
                 ps.close();
-                logger.info("Closing Prepared Statement");
+                logger.debug("Closing Prepared Statement");
             } catch (SQLException e) {
                 logger.error("Error while closing prepared statement", e);
             }
@@ -48,7 +255,7 @@ public class DataBaseConfig {
         if (rs != null) {
             try {
                 rs.close();
-                logger.info("Closing Result Set");
+                logger.debug("Closing Result Set");
             } catch (SQLException e) {
                 logger.error("Error while closing result set", e);
             }
@@ -0,0 +1,58 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.PoolConstants;
+
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/*
+ * H2 database running inside the app in MySQL mode and kept in local files, for sites too small
+ * to run a MySQL server. Same migrations and same DAOs as MySQL, without any network round trip.
+ */
+public class EmbeddedDataBaseConfig extends DataBaseConfig {
+
+    private final String location;
+
+    /*
+     * Files named after -Dparkingsystem.embeddedPath, data/parkingsystem by default
+     */
+    public EmbeddedDataBaseConfig() {
+        this(System.getProperty("parkingsystem.embeddedPath", "data/parkingsystem"));
+    }
+
+    public EmbeddedDataBaseConfig(String location) {
+        this.location = location;
+    }
+
+    @Override
+    protected String getJdbcUrl() {
+        // Committed transactions are written to the file before the commit returns
+        return "jdbc:h2:file:" + Paths.get(location).toAbsolutePath()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;WRITE_DELAY=0";
+    }
+
+    @Override
+    protected String getUsername() {
+        return "sa";
+    }
+
+    @Override
+    protected String getPassword() {
+        return "";
+    }
+
+    @Override
+    protected String getDriverClassName() {
+        return "org.h2.Driver";
+    }
+
+    /*
+     * H2 keeps the statements parsed per session in its query cache
+     */
+    @Override
+    protected Properties getDataSourceProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("QUERY_CACHE_SIZE", String.valueOf(PoolConstants.STATEMENT_CACHE_SIZE));
+        return properties;
+    }
+}
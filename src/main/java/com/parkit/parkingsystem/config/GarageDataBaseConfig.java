@@ -0,0 +1,97 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.GarageConstants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/*
+ * Database of one garage when the garages are spread over several database instances
+ */
+public class GarageDataBaseConfig extends DataBaseConfig {
+
+    private static final Pattern GARAGE_ID =
+            Pattern.compile("[A-Za-z0-9_-]{1," + GarageConstants.MAX_GARAGE_ID_LENGTH + "}");
+
+    private final String garageId;
+    private final String jdbcUrl;
+    private final String username;
+    private final String password;
+    private final String replicaJdbcUrl;
+
+    public GarageDataBaseConfig(String garageId, String jdbcUrl, String username,
+            String password) {
+        this(garageId, jdbcUrl, username, password, null);
+    }
+
+    /*
+     * replicaJdbcUrl is a replica of this garage's database, reached with the same credentials,
+     * or null to read everything from the primary
+     */
+    public GarageDataBaseConfig(String garageId, String jdbcUrl, String username,
+            String password, String replicaJdbcUrl) {
+        if (garageId == null || !GARAGE_ID.matcher(garageId).matches()) {
+            throw new IllegalArgumentException("Invalid garage id " + garageId);
+        }
+        if (jdbcUrl == null || jdbcUrl.isEmpty()) {
+            throw new IllegalArgumentException("Missing database url for garage " + garageId);
+        }
+        this.garageId = garageId;
+        this.jdbcUrl = jdbcUrl;
+        this.username = username;
+        this.password = password;
+        this.replicaJdbcUrl = replicaJdbcUrl;
+    }
+
+    /*
+     * Garages given as -Dparkingsystem.garages=north,south, each with
+     * -Dparkingsystem.garage.<id>.url and optional .username, .password and .replicaUrl. Empty
+     * when no garage is given, the default database then serves the only garage.
+     */
+    public static List<DataBaseConfig> fromSystemProperties() {
+        List<DataBaseConfig> garages = new ArrayList<>();
+        String garageIds = System.getProperty("parkingsystem.garages", "").trim();
+        if (garageIds.isEmpty()) {
+            return garages;
+        }
+        for (String garageId : garageIds.split(",")) {
+            String prefix = "parkingsystem.garage." + garageId.trim() + ".";
+            garages.add(new GarageDataBaseConfig(garageId.trim(),
+                    System.getProperty(prefix + "url"),
+                    System.getProperty(prefix + "username", "root"),
+                    System.getProperty(prefix + "password", "root"),
+                    System.getProperty(prefix + "replicaUrl")));
+        }
+        return garages;
+    }
+
+    @Override
+    public String getGarageId() {
+        return garageId;
+    }
+
+    @Override
+    protected String getJdbcUrl() {
+        return jdbcUrl;
+    }
+
+    /*
+     * The global -Dparkingsystem.replicaUrl is a replica of the default database, never of a
+     * garage's
+     */
+    @Override
+    protected String getReplicaJdbcUrl() {
+        return replicaJdbcUrl;
+    }
+
+    @Override
+    protected String getUsername() {
+        return username;
+    }
+
+    @Override
+    protected String getPassword() {
+        return password;
+    }
+}
@@ -0,0 +1,38 @@
+package com.parkit.parkingsystem.config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * When keys were last written, in a fixed number of slots picked by hash. Keys sharing a slot
+ * look written whenever one of them is, which only sends a few more reads to the primary.
+ */
+class RecentWrites {
+
+    private final AtomicLongArray lastWriteNanos;
+    private final int mask;
+
+    RecentWrites(int slots) {
+        if (Integer.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("Slot count must be a power of two");
+        }
+        lastWriteNanos = new AtomicLongArray(slots);
+        mask = slots - 1;
+    }
+
+    void mark(String key) {
+        long now = System.nanoTime();
+        lastWriteNanos.accumulateAndGet(slotOf(key), now, Math::max);
+    }
+
+    boolean writtenWithin(String key, long periodMs) {
+        long lastWrite = lastWriteNanos.get(slotOf(key));
+        return lastWrite != 0
+                && System.nanoTime() - lastWrite < TimeUnit.MILLISECONDS.toNanos(periodMs);
+    }
+
+    private int slotOf(String key) {
+        int hash = key.hashCode();
+        return (hash ^ hash >>> 16) & mask;
+    }
+}
@@ -0,0 +1,155 @@
+package com.parkit.parkingsystem.config;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+
+/*
+ * Runs a piece of work on a single connection and in a single transaction. While the work runs,
+ * every DataBaseConfig pointing to the same database hands out that connection, so the DAOs take
+ * part in the transaction without any change.
+ */
+public class UnitOfWork {
+
+    private static final Logger logger = LogManager.getLogger("UnitOfWork");
+
+    private static final ThreadLocal<Transaction> currentTransaction = new ThreadLocal<>();
+
+    public interface Work<T> {
+        T execute() throws Exception;
+    }
+
+    private final DataBaseConfig dataBaseConfig;
+    private final ConnectionState connectionState;
+
+    /*
+     * Without a database configuration the work runs as is, each DAO call auto-commits
+     */
+    public UnitOfWork() {
+        this(null);
+    }
+
+    public UnitOfWork(DataBaseConfig dataBaseConfig) {
+        this(dataBaseConfig, null);
+    }
+
+    /*
+     * With a connection state, the work runs without a transaction while the database cannot be
+     * reached, leaving it to the DAOs to work offline
+     */
+    public UnitOfWork(DataBaseConfig dataBaseConfig, ConnectionState connectionState) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.connectionState = connectionState;
+    }
+
+    public <T> T execute(Work<T> work) throws Exception {
+        if (dataBaseConfig == null || currentTransaction.get() != null
+                || (connectionState != null && connectionState.isOffline())) {
+            return work.execute();
+        }
+        Connection con;
+        try {
+            con = dataBaseConfig.getConnection();
+        } catch (SQLException e) {
+            if (connectionState == null || !ConnectionState.isConnectionFailure(e)) {
+                throw e;
+            }
+            connectionState.setOffline(true);
+            return work.execute();
+        }
+        Transaction transaction = new Transaction(dataBaseConfig.getDataSource(), con);
+        T result;
+        try {
+            con.setAutoCommit(false);
+            currentTransaction.set(transaction);
+            result = work.execute();
+            con.commit();
+        } catch (Exception e) {
+            rollback(con);
+            currentTransaction.remove();
+            runAll(transaction.afterRollback);
+            throw e;
+        } finally {
+            currentTransaction.remove();
+            try {
+                con.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.error("Error while restoring auto-commit", e);
+            }
+            dataBaseConfig.closeConnection(con);
+        }
+        runAll(transaction.afterCommit);
+        return result;
+    }
+
+    private static void rollback(Connection con) {
+        try {
+            con.rollback();
+        } catch (SQLException e) {
+            logger.error("Error while rolling back transaction", e);
+        }
+    }
+
+    private static void runAll(List<Runnable> actions) {
+        for (Runnable action : actions) {
+            action.run();
+        }
+    }
+
+    /*
+     * Runs the action once the current transaction commits, or right away outside of a transaction.
+     * Used to keep in-memory state in line with what is actually written in the database.
+     */
+    public static void afterCommit(Runnable action) {
+        Transaction transaction = currentTransaction.get();
+        if (transaction == null) {
+            action.run();
+        } else {
+            transaction.afterCommit.add(action);
+        }
+    }
+
+    /*
+     * Runs the action if the current transaction rolls back, does nothing outside of a transaction
+     */
+    public static void afterRollback(Runnable action) {
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null) {
+            transaction.afterRollback.add(action);
+        }
+    }
+
+    public static boolean inTransaction() {
+        return currentTransaction.get() != null;
+    }
+
+    static Connection getBoundConnection(DataSource dataSource) {
+        Transaction transaction = currentTransaction.get();
+        if (transaction != null && transaction.dataSource == dataSource) {
+            return transaction.connection;
+        }
+        return null;
+    }
+
+    static boolean isBound(Connection con) {
+        Transaction transaction = currentTransaction.get();
+        return transaction != null && transaction.connection == con;
+    }
+
+    private static class Transaction {
+        private final DataSource dataSource;
+        private final Connection connection;
+        private final List<Runnable> afterCommit = new ArrayList<>();
+        private final List<Runnable> afterRollback = new ArrayList<>();
+
+        private Transaction(DataSource dataSource, Connection connection) {
+            this.dataSource = dataSource;
+            this.connection = connection;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.parkit.parkingsystem.constants;
+
+public class ArchiveConstants {
+    // Tickets closed longer ago than this are moved to ticket_archive
+    public static final int ARCHIVE_AFTER_DAYS = 31;
+    // Tickets moved per transaction, small enough to keep row locks short
+    public static final int BATCH_SIZE = 500;
+    public static final long BATCH_PAUSE_MS = 50;
+    public static final long INTERVAL_MINUTES = 60;
+}
@@ -0,0 +1,8 @@
+package com.parkit.parkingsystem.constants;
+
+public class BulkImportConstants {
+    // Rows sent to the database in one JDBC batch
+    public static final int BATCH_SIZE = 1_000;
+    // Rows written in one transaction, an interrupted import resumes after the last commit
+    public static final int COMMIT_SIZE = 50_000;
+}
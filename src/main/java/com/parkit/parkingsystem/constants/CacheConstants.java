@@ -0,0 +1,7 @@
+package com.parkit.parkingsystem.constants;
+
+public class CacheConstants {
+    public static final long KNOWN_PLATES_EXPECTED_COUNT = 1_000_000;
+    public static final double KNOWN_PLATES_FALSE_POSITIVE_RATE = 0.01;
+    public static final int CONFIRMED_PLATES_CACHE_SIZE = 100_000;
+}
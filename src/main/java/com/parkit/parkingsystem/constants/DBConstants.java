@@ -3,16 +3,79 @@ package com.parkit.parkingsystem.constants;
 public class DBConstants {
 
     public static final String GET_NEXT_PARKING_SPOT =
-            "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
+            "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ? and PARKING_NUMBER > ?";
+    public static final String GET_AVAILABLE_PARKING_SPOTS =
+            "select PARKING_NUMBER, TYPE from parking where AVAILABLE = true";
+    public static final String GET_PARKING_SPOT_COUNTS =
+            "select TYPE, count(*) from parking group by TYPE";
+    public static final String COUNT_PARKING_SPOTS =
+            "select count(*) from parking where TYPE = ? and AVAILABLE = ?";
+    public static final String GET_PARKING_SPOT =
+            "select TYPE, AVAILABLE from parking where PARKING_NUMBER = ?";
+    public static final String SAVE_PARKING_SPOT =
+            "insert into parking(PARKING_NUMBER, AVAILABLE, TYPE) values(?,?,?)";
     public static final String UPDATE_PARKING_SPOT =
             "update parking set available = ? where PARKING_NUMBER = ?";
+    public static final String RESERVE_PARKING_SPOT =
+            "update parking set AVAILABLE = false where PARKING_NUMBER = ? and AVAILABLE = true";
 
     public static final String SAVE_TICKET =
             "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, DISCOUNT) values(?,?,?,?,?,?)";
     public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
+    public static final String SAVE_TICKET_IF_ABSENT =
+            "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, DISCOUNT) select ?,?,?,?,?,? from dual where not exists (select 1 from ticket where VEHICLE_REG_NUMBER=? and IN_TIME=?)";
+    public static final String CLOSE_TICKET =
+            "update ticket set PRICE=?, OUT_TIME=? where ID=? and OUT_TIME is NULL";
+    public static final String UPDATE_OPEN_TICKET =
+            "update ticket set PRICE=?, OUT_TIME=? where VEHICLE_REG_NUMBER=? and IN_TIME=? and OUT_TIME is NULL";
     public static final String GET_TICKET =
             "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, t.DISCOUNT, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=?  and t.`OUT_TIME` is NULL order by t.IN_TIME  limit 1";
+    public static final String GET_OPEN_TICKETS =
+            "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, t.DISCOUNT, p.TYPE, t.VEHICLE_REG_NUMBER from ticket t,parking p where p.parking_number = t.parking_number and t.`OUT_TIME` is NULL order by t.IN_TIME";
+
+    public static final String GET_CLOSED_TICKETS =
+            "select t.ID, p.TYPE, t.IN_TIME, t.OUT_TIME, t.DISCOUNT, t.PRICE from (select ID, PARKING_NUMBER, IN_TIME, OUT_TIME, DISCOUNT, PRICE from ticket where `OUT_TIME` >= ? and `OUT_TIME` < ? union all select ID, PARKING_NUMBER, IN_TIME, OUT_TIME, DISCOUNT, PRICE from ticket_archive where `OUT_TIME` >= ? and `OUT_TIME` < ?) t,parking p where p.parking_number = t.parking_number";
+
+    public static final String GET_FIRST_OPEN_TICKET_ID =
+            "select min(ID) from ticket where OUT_TIME is NULL";
+    public static final String GET_TICKETS_TO_EXPORT =
+            "select t.ID, t.PARKING_NUMBER, t.VEHICLE_REG_NUMBER, p.TYPE, t.IN_TIME, t.OUT_TIME, t.DISCOUNT, t.PRICE from (select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, IN_TIME, OUT_TIME, DISCOUNT, PRICE from ticket where ID > ? and ID < ? union all select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, IN_TIME, OUT_TIME, DISCOUNT, PRICE from ticket_archive where ID > ? and ID < ?) t,parking p where p.parking_number = t.parking_number order by t.ID";
+    // Only while the price is still the one the correction was computed from
+    public static final String UPDATE_TICKET_PRICE =
+            "update ticket set PRICE=? where ID=? and PRICE=?";
+    public static final String UPDATE_ARCHIVED_TICKET_PRICE =
+            "update ticket_archive set PRICE=? where ID=? and PRICE=?";
+    // Adds a price difference to the plate of a live or archived ticket
+    public static final String ADD_TICKET_SPEND =
+            "update vehicle_summary set TOTAL_SPENT = TOTAL_SPENT + ? where VEHICLE_REG_NUMBER in (select VEHICLE_REG_NUMBER from ticket where ID = ? union all select VEHICLE_REG_NUMBER from ticket_archive where ID = ?)";
+
+    public static final String GET_LAST_TICKET_ID = "select max(ID) from ticket";
+    public static final String GET_TICKETS_TO_ARCHIVE =
+            "select ID from ticket where OUT_TIME < ? and ID < ? order by OUT_TIME, ID limit ?";
+    public static final String ARCHIVE_TICKET =
+            "insert into ticket_archive(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, DISCOUNT, GARAGE_ID) select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, DISCOUNT, GARAGE_ID from ticket where ID = ?";
+    public static final String DELETE_TICKET = "delete from ticket where ID = ?";
 
     public static final String GET_NB_TICKET =
-            "SELECT COUNT(*) FROM ticket WHERE `VEHICLE_REG_NUMBER`= ?";
+            "SELECT NB_VISIT FROM vehicle_summary WHERE `VEHICLE_REG_NUMBER`= ?";
+    public static final String HAS_TICKET =
+            "SELECT 1 FROM vehicle_summary WHERE `VEHICLE_REG_NUMBER`= ?";
+    public static final String GET_KNOWN_PLATES =
+            "SELECT VEHICLE_REG_NUMBER FROM vehicle_summary";
+
+    public static final String GET_VEHICLE_SUMMARY =
+            "select NB_VISIT, TOTAL_SPENT, LAST_VISIT from vehicle_summary where VEHICLE_REG_NUMBER = ?";
+    // Adds visits and spend to a plate, an entry adds a visit and an exit the price
+    public static final String ADD_VEHICLE_VISIT =
+            "insert into vehicle_summary(VEHICLE_REG_NUMBER, NB_VISIT, TOTAL_SPENT, LAST_VISIT) values(?,?,?,?) on duplicate key update NB_VISIT = NB_VISIT + values(NB_VISIT), TOTAL_SPENT = TOTAL_SPENT + values(TOTAL_SPENT), LAST_VISIT = greatest(LAST_VISIT, values(LAST_VISIT))";
+    public static final String GET_PLATES_TO_SUMMARIZE =
+            "select VEHICLE_REG_NUMBER from (select VEHICLE_REG_NUMBER from ticket where VEHICLE_REG_NUMBER > ? union select VEHICLE_REG_NUMBER from ticket_archive where VEHICLE_REG_NUMBER > ?) t order by VEHICLE_REG_NUMBER limit ?";
+    public static final String SUMMARIZE_PLATES =
+            "select VEHICLE_REG_NUMBER, count(*), sum(coalesce(PRICE, 0)), max(coalesce(OUT_TIME, IN_TIME)) from (select VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket where VEHICLE_REG_NUMBER between ? and ? union all select VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket_archive where VEHICLE_REG_NUMBER between ? and ?) t group by VEHICLE_REG_NUMBER";
+    // Replaces what a plate holds with the totals of its tickets
+    public static final String SET_VEHICLE_SUMMARY =
+            "insert into vehicle_summary(VEHICLE_REG_NUMBER, NB_VISIT, TOTAL_SPENT, LAST_VISIT) values(?,?,?,?) on duplicate key update NB_VISIT = values(NB_VISIT), TOTAL_SPENT = values(TOTAL_SPENT), LAST_VISIT = values(LAST_VISIT)";
+
+    public static final int FETCH_SIZE = 1000;
+    public static final int VEHICLE_REG_NUMBER_LENGTH = 10;
 }
@@ -0,0 +1,11 @@
+package com.parkit.parkingsystem.constants;
+
+public class ExportConstants {
+    // Rows streamed from the database and written at once
+    public static final int CHUNK_SIZE = 4_096;
+    // One file per day of OUT_TIME, as tickets-yyyy-MM-dd.pkc
+    public static final String FILE_PREFIX = "tickets-";
+    public static final String FILE_SUFFIX = ".pkc";
+    // Last exported ticket ID, next to the files
+    public static final String CHECKPOINT_FILE = "export.checkpoint";
+}
@@ -0,0 +1,10 @@
+package com.parkit.parkingsystem.constants;
+
+public class GarageConstants {
+    // Garage of the database configured by DataBaseConfig itself
+    public static final String DEFAULT_GARAGE_ID = "main";
+    public static final int MAX_GARAGE_ID_LENGTH = 32;
+    // Longest wait for the other garages when looking a plate up across all of them
+    public static final long FAN_OUT_TIMEOUT_MS = 200;
+    public static final int FAN_OUT_THREADS_PER_GARAGE = 4;
+}
@@ -0,0 +1,8 @@
+package com.parkit.parkingsystem.constants;
+
+public class MetricsConstants {
+    public static final String JMX_DOMAIN = "com.parkit.parkingsystem";
+    // Bounds the metrics created from request parameters such as the gate name
+    public static final int MAX_METRICS = 1000;
+    public static final int MAX_GATE_NAME_LENGTH = 32;
+}
@@ -0,0 +1,18 @@
+package com.parkit.parkingsystem.constants;
+
+public class PoolConstants {
+    public static final int MINIMUM_IDLE = 2;
+    public static final int MAXIMUM_POOL_SIZE = 10;
+    public static final long IDLE_TIMEOUT_MS = 5 * 60 * 1000;
+    public static final long MAX_LIFETIME_MS = 30 * 60 * 1000;
+    public static final long BORROW_TIMEOUT_MS = 3 * 1000;
+    public static final long VALIDATION_TIMEOUT_MS = 1000;
+    // Prepared statements kept per pooled connection, well above the number the DAOs use
+    public static final int STATEMENT_CACHE_SIZE = 250;
+    public static final int STATEMENT_CACHE_SQL_LIMIT = 2048;
+    // Longest lag expected of a read replica, keys written more recently are read from the primary
+    public static final long REPLICA_MAX_LAG_MS = 2_000;
+    // Reads stay on the primary this long after the replica failed to give a connection
+    public static final long REPLICA_RETRY_DELAY_MS = 10_000;
+    public static final int RECENT_WRITE_SLOTS = 4_096;
+}
@@ -0,0 +1,8 @@
+package com.parkit.parkingsystem.constants;
+
+public class ServerConstants {
+    public static final int DEFAULT_PORT = 8080;
+    // Used when virtual threads are not available, every request blocks a thread on JDBC
+    public static final int FALLBACK_POOL_SIZE = 200;
+    public static final int STOP_DELAY_SECONDS = 2;
+}
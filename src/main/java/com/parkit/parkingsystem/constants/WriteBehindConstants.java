@@ -0,0 +1,10 @@
+package com.parkit.parkingsystem.constants;
+
+public class WriteBehindConstants {
+    public static final int QUEUE_CAPACITY = 10_000;
+    public static final int FLUSH_SIZE = 500;
+    public static final long FLUSH_INTERVAL_MS = 50;
+    public static final int ONLINE_BACKLOG = 1_000;
+    public static final int JOURNAL_CAPACITY_BYTES = 64 * 1024 * 1024;
+    public static final String JOURNAL_FILE = "ticket-journal.dat";
+}
@@ -0,0 +1,237 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.BulkImportConstants;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ImportReport;
+import com.parkit.parkingsystem.util.CsvReader;
+import com.parkit.parkingsystem.util.RegistrationNumbers;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Locale;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/*
+ * Loads parking spots and tickets from CSV files, streaming the rows into JDBC batches and
+ * committing every few batches, so that millions of rows are imported in constant memory. The
+ * first line of a file is a header and is skipped. Invalid rows are rejected and reported, a
+ * database error stops the import at the last commit.
+ */
+public class BulkImportDAO {
+
+    private static final Logger logger = LogManager.getLogger("BulkImportDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    private final int batchSize;
+    private final int commitSize;
+
+    public interface ProgressListener {
+        void committed(ImportReport report);
+    }
+
+    /*
+     * Binds the parameters of the insert for one record, and of the summary upsert when the import
+     * has one, throws IllegalArgumentException when the record is invalid
+     */
+    private interface RowBinder {
+        void bind(String[] record, PreparedStatement ps, PreparedStatement summary)
+                throws SQLException;
+    }
+
+    public BulkImportDAO() {
+        this(BulkImportConstants.BATCH_SIZE, BulkImportConstants.COMMIT_SIZE);
+    }
+
+    public BulkImportDAO(int batchSize, int commitSize) {
+        this.batchSize = batchSize;
+        this.commitSize = commitSize;
+    }
+
+    /*
+     * PARKING_NUMBER, TYPE, optional AVAILABLE (true by default). Lines up to startLine are
+     * skipped, to resume an import that stopped.
+     */
+    public ImportReport importParkingSpots(Reader csv, long startLine, ProgressListener listener) {
+        return load(DBConstants.SAVE_PARKING_SPOT, null, csv, startLine, listener,
+                (record, ps, summary) -> {
+            // PARKING_NUMBER, AVAILABLE, TYPE
+            requireFields(record, 2);
+            int parkingNumber = Integer.parseInt(record[0]);
+            if (parkingNumber <= 0) {
+                throw new IllegalArgumentException("Invalid parking number " + parkingNumber);
+            }
+            ParkingType parkingType = ParkingType.valueOf(record[1].toUpperCase(Locale.ROOT));
+            boolean available = record.length < 3 || record[2].isEmpty() || parseBoolean(record[2]);
+            ps.setInt(1, parkingNumber);
+            ps.setBoolean(2, available);
+            ps.setString(3, parkingType.toString());
+        });
+    }
+
+    /*
+     * PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, DISCOUNT. Times are written
+     * yyyy-mm-dd hh:mm:ss, an empty OUT_TIME leaves the ticket open. The parking spots must exist.
+     * Each ticket adds a visit and its price to its plate in vehicle_summary, in the same batches.
+     */
+    public ImportReport importTickets(Reader csv, long startLine, ProgressListener listener) {
+        return load(DBConstants.SAVE_TICKET, DBConstants.ADD_VEHICLE_VISIT, csv, startLine,
+                listener, (record, ps, summary) -> {
+            // PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, DISCOUNT
+            requireFields(record, 4);
+            int parkingNumber = Integer.parseInt(record[0]);
+            String vehicleRegNumber = RegistrationNumbers.normalize(record[1]);
+            if (vehicleRegNumber.isEmpty()
+                    || vehicleRegNumber.length() > DBConstants.VEHICLE_REG_NUMBER_LENGTH) {
+                throw new IllegalArgumentException("Invalid registration number");
+            }
+            double price = record[2].isEmpty() ? 0 : Double.parseDouble(record[2]);
+            Timestamp inTime = Timestamp.valueOf(record[3]);
+            Timestamp outTime = record.length < 5 || record[4].isEmpty()
+                    ? null : Timestamp.valueOf(record[4]);
+            if (outTime != null && outTime.before(inTime)) {
+                throw new IllegalArgumentException("Out time before in time");
+            }
+            boolean discount = record.length >= 6 && !record[5].isEmpty()
+                    && parseBoolean(record[5]);
+            ps.setInt(1, parkingNumber);
+            ps.setString(2, vehicleRegNumber);
+            ps.setDouble(3, price);
+            ps.setTimestamp(4, inTime);
+            ps.setTimestamp(5, outTime);
+            ps.setBoolean(6, discount);
+            // VEHICLE_REG_NUMBER, NB_VISIT, TOTAL_SPENT, LAST_VISIT
+            summary.setString(1, vehicleRegNumber);
+            summary.setInt(2, 1);
+            summary.setDouble(3, price);
+            summary.setTimestamp(4, outTime == null ? inTime : outTime);
+        });
+    }
+
+    private ImportReport load(String sql, String summarySql, Reader csv, long startLine, ProgressListener listener,
+            RowBinder binder) {
+        ImportReport report = new ImportReport();
+        report.committed(startLine, 0);
+        Connection con = null;
+        try (CsvReader reader = new CsvReader(csv)) {
+            reader.readRecord();
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(sql);
+                    PreparedStatement summary =
+                            summarySql == null ? null : con.prepareStatement(summarySql)) {
+                int batched = 0;
+                int uncommitted = 0;
+                while (true) {
+                    String[] record;
+                    try {
+                        record = reader.readRecord();
+                    } catch (IllegalArgumentException e) {
+                        reject(report, reader.getLineNumber(), startLine, e);
+                        continue;
+                    }
+                    if (record == null) {
+                        break;
+                    }
+                    if (reader.getLineNumber() <= startLine) {
+                        continue;
+                    }
+                    report.addRead();
+                    try {
+                        binder.bind(record, ps, summary);
+                    } catch (IllegalArgumentException e) {
+                        reject(report, reader.getLineNumber(), startLine, e);
+                        continue;
+                    }
+                    ps.addBatch();
+                    if (summary != null) {
+                        summary.addBatch();
+                    }
+                    batched++;
+                    uncommitted++;
+                    if (batched == batchSize) {
+                        executeBatches(ps, summary);
+                        batched = 0;
+                    }
+                    if (uncommitted == commitSize) {
+                        con.commit();
+                        report.committed(reader.getLineNumber(), uncommitted);
+                        uncommitted = 0;
+                        listener.committed(report);
+                    }
+                }
+                if (batched > 0) {
+                    executeBatches(ps, summary);
+                }
+                con.commit();
+                report.committed(reader.getLineNumber(), uncommitted);
+                listener.committed(report);
+            }
+            report.setCompleted(true);
+        } catch (SQLException | ClassNotFoundException | IOException e) {
+            rollback(con);
+            logger.error("Bulk import stopped, rows after line {} were not imported",
+                    box(report.getLastCommittedLine()), e);
+        } finally {
+            if (con != null) {
+                try {
+                    con.setAutoCommit(true);
+                } catch (SQLException e) {
+                    logger.error("Error while restoring auto-commit", e);
+                }
+            }
+            dataBaseConfig.closeConnection(con);
+        }
+        return report;
+    }
+
+    private static void executeBatches(PreparedStatement ps, PreparedStatement summary)
+            throws SQLException {
+        ps.executeBatch();
+        if (summary != null) {
+            summary.executeBatch();
+        }
+    }
+
+    private static void reject(ImportReport report, long lineNumber, long startLine,
+            IllegalArgumentException e) {
+        if (lineNumber > startLine) {
+            report.addRejected(lineNumber, e.getMessage());
+        }
+    }
+
+    private static void requireFields(String[] record, int count) {
+        if (record.length < count) {
+            throw new IllegalArgumentException("Expected at least " + count + " fields");
+        }
+    }
+
+    private static boolean parseBoolean(String value) {
+        if ("true".equalsIgnoreCase(value) || "1".equals(value)) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(value) || "0".equals(value)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Invalid boolean " + value);
+    }
+
+    private static void rollback(Connection con) {
+        if (con != null) {
+            try {
+                con.rollback();
+            } catch (SQLException e) {
+                logger.error("Error while rolling back import", e);
+            }
+        }
+    }
+}
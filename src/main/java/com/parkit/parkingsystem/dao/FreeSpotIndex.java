@@ -0,0 +1,129 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * In-memory view of the free parking spots, sorted by number for each parking type so that the
+ * lowest free spot is found without querying the parking table. Free and occupied counts follow
+ * every change of the sets, so occupancy is read in constant time.
+ */
+public class FreeSpotIndex {
+
+    private volatile Map<ParkingType, Spots> spots = emptyIndex();
+    private volatile boolean loaded = false;
+
+    private static class Spots {
+        private final NavigableSet<Integer> free = new ConcurrentSkipListSet<>();
+        private final LongAdder freeCount = new LongAdder();
+        private final LongAdder occupiedCount = new LongAdder();
+
+        private void taken() {
+            freeCount.decrement();
+            occupiedCount.increment();
+        }
+
+        private void freed() {
+            occupiedCount.decrement();
+            freeCount.increment();
+        }
+    }
+
+    private static Map<ParkingType, Spots> emptyIndex() {
+        Map<ParkingType, Spots> index = new EnumMap<>(ParkingType.class);
+        for (ParkingType parkingType : ParkingType.values()) {
+            index.put(parkingType, new Spots());
+        }
+        return index;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /*
+     * Replaces the whole content of the index, taking every spot as free
+     */
+    public void load(Map<ParkingType, ? extends Iterable<Integer>> availableSpots) {
+        load(availableSpots, new EnumMap<>(ParkingType.class));
+    }
+
+    /*
+     * Replaces the whole content of the index, used when (re)loading it from the parking table.
+     * The spots of a type not found in availableSpots are occupied.
+     */
+    public void load(Map<ParkingType, ? extends Iterable<Integer>> availableSpots,
+            Map<ParkingType, Integer> spotCounts) {
+        Map<ParkingType, Spots> index = emptyIndex();
+        for (Map.Entry<ParkingType, ? extends Iterable<Integer>> entry : availableSpots.entrySet()) {
+            for (Integer parkingNumber : entry.getValue()) {
+                index.get(entry.getKey()).free.add(parkingNumber);
+            }
+        }
+        for (Map.Entry<ParkingType, Spots> entry : index.entrySet()) {
+            Spots typeSpots = entry.getValue();
+            int freeCount = typeSpots.free.size();
+            typeSpots.freeCount.add(freeCount);
+            typeSpots.occupiedCount.add(
+                    Math.max(0, spotCounts.getOrDefault(entry.getKey(), freeCount) - freeCount));
+        }
+        spots = index;
+        loaded = true;
+    }
+
+    public void clear() {
+        spots = emptyIndex();
+        loaded = false;
+    }
+
+    /*
+     * Returns the lowest free spot number for this type, or 0 when every spot is taken
+     */
+    public int getLowestAvailable(ParkingType parkingType) {
+        Iterator<Integer> iterator = spots.get(parkingType).free.iterator();
+        return iterator.hasNext() ? iterator.next() : 0;
+    }
+
+    /*
+     * Atomically removes and returns the lowest free spot number for this type, or 0 when every
+     * spot is taken. Two concurrent callers never get the same number.
+     */
+    public int claimLowestAvailable(ParkingType parkingType) {
+        Spots typeSpots = spots.get(parkingType);
+        Integer parkingNumber = typeSpots.free.pollFirst();
+        if (parkingNumber == null) {
+            return 0;
+        }
+        typeSpots.taken();
+        return parkingNumber;
+    }
+
+    public void setAvailable(ParkingType parkingType, int parkingNumber, boolean available) {
+        Spots typeSpots = spots.get(parkingType);
+        if (available) {
+            if (typeSpots.free.add(parkingNumber)) {
+                typeSpots.freed();
+            }
+        } else if (typeSpots.free.remove(parkingNumber)) {
+            typeSpots.taken();
+        }
+    }
+
+    public boolean isAvailable(ParkingType parkingType, int parkingNumber) {
+        return spots.get(parkingType).free.contains(parkingNumber);
+    }
+
+    public long getAvailableCount(ParkingType parkingType) {
+        return spots.get(parkingType).freeCount.sum();
+    }
+
+    public long getOccupiedCount(ParkingType parkingType) {
+        return spots.get(parkingType).occupiedCount.sum();
+    }
+}
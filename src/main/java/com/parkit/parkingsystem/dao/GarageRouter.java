@@ -0,0 +1,176 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.GarageConstants;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.flywaydb.core.api.FlywayException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Sends each garage to its own database: every garage gets its own ParkingSpotDAO and TicketDAO,
+ * with their in-memory indexes, on the DataBaseConfig of that garage. Lookups that concern every
+ * garage, such as the plate history for the discount, are sent to all of them in parallel.
+ */
+public class GarageRouter {
+
+    private static final Logger logger = LogManager.getLogger("GarageRouter");
+
+    private static final LatencyHistogram fanOutLatency = Metrics.histogram("GarageRouter.fanOut");
+    private static final Counter fanOutTimeouts = Metrics.counter("GarageRouter.fanOut.timeouts");
+
+    private final Map<String, Garage> garages = new LinkedHashMap<>();
+    private final ExecutorService fanOutExecutor;
+    private final long fanOutTimeoutMs;
+
+    private static class Garage {
+        private final DataBaseConfig dataBaseConfig;
+        private final ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        private final TicketDAO ticketDAO = new TicketDAO();
+
+        private Garage(DataBaseConfig dataBaseConfig) {
+            this.dataBaseConfig = dataBaseConfig;
+            parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+            ticketDAO.dataBaseConfig = dataBaseConfig;
+        }
+    }
+
+    public GarageRouter(List<DataBaseConfig> dataBaseConfigs) {
+        this(dataBaseConfigs, GarageConstants.FAN_OUT_TIMEOUT_MS);
+    }
+
+    public GarageRouter(List<DataBaseConfig> dataBaseConfigs, long fanOutTimeoutMs) {
+        for (DataBaseConfig dataBaseConfig : dataBaseConfigs) {
+            Garage garage = new Garage(dataBaseConfig);
+            if (garages.put(dataBaseConfig.getGarageId(), garage) != null) {
+                throw new IllegalArgumentException(
+                        "Garage " + dataBaseConfig.getGarageId() + " given twice");
+            }
+            garage.ticketDAO.garageRouter = this;
+        }
+        if (garages.isEmpty()) {
+            throw new IllegalArgumentException("No garage to route to");
+        }
+        this.fanOutTimeoutMs = fanOutTimeoutMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        fanOutExecutor = Executors.newFixedThreadPool(
+                garages.size() * GarageConstants.FAN_OUT_THREADS_PER_GARAGE, task -> {
+                    Thread thread = new Thread(task,
+                            "garage-fan-out-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /*
+     * Ordered as given to the constructor
+     */
+    public Set<String> getGarageIds() {
+        return Collections.unmodifiableSet(garages.keySet());
+    }
+
+    public DataBaseConfig getDataBaseConfig(String garageId) {
+        return garage(garageId).dataBaseConfig;
+    }
+
+    public ParkingSpotDAO getParkingSpotDAO(String garageId) {
+        return garage(garageId).parkingSpotDAO;
+    }
+
+    public TicketDAO getTicketDAO(String garageId) {
+        return garage(garageId).ticketDAO;
+    }
+
+    private Garage garage(String garageId) {
+        Garage garage = garages.get(garageId);
+        if (garage == null) {
+            throw new IllegalArgumentException("Unknown garage " + garageId);
+        }
+        return garage;
+    }
+
+    /*
+     * Migrates the database of every garage and fills the in-memory indexes of their DAOs
+     */
+    public void migrateAndLoad() {
+        for (Garage garage : garages.values()) {
+            try {
+                garage.dataBaseConfig.migrate();
+            } catch (FlywayException e) {
+                logger.error("Unable to migrate DB schema of garage {}",
+                        garage.dataBaseConfig.getGarageId(), e);
+            }
+            garage.parkingSpotDAO.loadAvailableSpots();
+            garage.ticketDAO.loadKnownPlates();
+            garage.ticketDAO.loadOpenTickets();
+        }
+    }
+
+    /*
+     * Asks every garage but the given one, in parallel, whether the plate already parked there.
+     * A garage failing or not answering in time counts as not knowing the plate, so that a slow
+     * garage never holds entries up.
+     */
+    public boolean isKnownInOtherGarages(String garageId, String vehicleRegNumber) {
+        long startNanos = System.nanoTime();
+        CompletionService<Boolean> completionService =
+                new ExecutorCompletionService<>(fanOutExecutor);
+        List<Future<Boolean>> lookups = new ArrayList<>();
+        try {
+            for (Map.Entry<String, Garage> garage : garages.entrySet()) {
+                if (!garage.getKey().equals(garageId)) {
+                    TicketDAO ticketDAO = garage.getValue().ticketDAO;
+                    lookups.add(completionService.submit(
+                            () -> ticketDAO.isKnownPlate(vehicleRegNumber)));
+                }
+            }
+            long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(fanOutTimeoutMs);
+            for (int i = 0; i < lookups.size(); i++) {
+                Future<Boolean> lookup = completionService.poll(deadline - System.nanoTime(),
+                        TimeUnit.NANOSECONDS);
+                if (lookup == null) {
+                    fanOutTimeouts.increment();
+                    logger.warn("Plate lookup in the other garages timed out");
+                    return false;
+                }
+                try {
+                    if (lookup.get()) {
+                        return true;
+                    }
+                } catch (ExecutionException e) {
+                    logger.error("Error looking a plate up in another garage", e.getCause());
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            for (Future<Boolean> lookup : lookups) {
+                lookup.cancel(true);
+            }
+            fanOutLatency.recordSince(startNanos);
+        }
+    }
+
+    public void shutdown() {
+        fanOutExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,66 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.CacheConstants;
+import com.parkit.parkingsystem.util.BloomFilter;
+import com.parkit.parkingsystem.util.RegistrationNumbers;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Plates that already have a ticket. A Bloom filter rules out new plates without a query, and the
+ * most recently confirmed plates are kept in a bounded LRU so that regular customers do not hit
+ * the database either. Plates are kept in upper case, as the gates look them up.
+ */
+public class KnownPlatesCache {
+
+    private final BloomFilter knownPlates;
+    private final Map<String, Boolean> confirmedPlates;
+    private volatile boolean loaded = false;
+
+    public KnownPlatesCache() {
+        this(CacheConstants.KNOWN_PLATES_EXPECTED_COUNT,
+                CacheConstants.KNOWN_PLATES_FALSE_POSITIVE_RATE,
+                CacheConstants.CONFIRMED_PLATES_CACHE_SIZE);
+    }
+
+    public KnownPlatesCache(long expectedCount, double falsePositiveRate, int confirmedCacheSize) {
+        this.knownPlates = new BloomFilter(expectedCount, falsePositiveRate);
+        this.confirmedPlates = Collections.synchronizedMap(
+                new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                        return size() > confirmedCacheSize;
+                    }
+                });
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void setLoaded(boolean loaded) {
+        this.loaded = loaded;
+    }
+
+    public void add(String vehicleRegNumber) {
+        knownPlates.put(RegistrationNumbers.normalize(vehicleRegNumber));
+    }
+
+    public void confirm(String vehicleRegNumber) {
+        confirmedPlates.put(RegistrationNumbers.normalize(vehicleRegNumber), Boolean.TRUE);
+    }
+
+    /*
+     * False means the plate was never seen. True only means it might have been seen, unless it is
+     * also confirmed.
+     */
+    public boolean mightBeKnown(String vehicleRegNumber) {
+        return knownPlates.mightContain(RegistrationNumbers.normalize(vehicleRegNumber));
+    }
+
+    public boolean isConfirmed(String vehicleRegNumber) {
+        return confirmedPlates.containsKey(RegistrationNumbers.normalize(vehicleRegNumber));
+    }
+}
@@ -0,0 +1,76 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.RegistrationNumbers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * In-memory map of the tickets of the vehicles currently parked, keyed by registration number.
+ * The index owns the tickets it is given and callers always get their own copy back, so changing
+ * a ticket does not touch the index. Plates are keyed in upper case, as the gates look them up.
+ */
+public class OpenTicketIndex {
+
+    private final Map<String, Ticket> openTickets = new ConcurrentHashMap<>();
+    private volatile boolean loaded = false;
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void setLoaded(boolean loaded) {
+        this.loaded = loaded;
+    }
+
+    public void clear() {
+        openTickets.clear();
+        loaded = false;
+    }
+
+    /*
+     * Keeps the first open ticket of a plate, like GET_TICKET does
+     */
+    public void add(Ticket ticket) {
+        openTickets.putIfAbsent(RegistrationNumbers.normalize(ticket.getVehicleRegNumber()),
+                ticket);
+    }
+
+    public Ticket get(String vehicleRegNumber) {
+        Ticket ticket = openTickets.get(RegistrationNumbers.normalize(vehicleRegNumber));
+        return ticket == null ? null : copy(ticket);
+    }
+
+    public void remove(Ticket ticket) {
+        openTickets.computeIfPresent(RegistrationNumbers.normalize(ticket.getVehicleRegNumber()),
+                (vehicleRegNumber, openTicket) -> openTicket.getId() == ticket.getId() ? null
+                        : openTicket);
+    }
+
+    public int size() {
+        return openTickets.size();
+    }
+
+    /*
+     * Copies the ticket as it is now, for an index update that only runs after commit
+     */
+    public Ticket snapshot(Ticket ticket) {
+        return copy(ticket);
+    }
+
+    private static Ticket copy(Ticket ticket) {
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        Ticket copy = new Ticket();
+        copy.setId(ticket.getId());
+        copy.setParkingSpot(new ParkingSpot(parkingSpot.getId(), parkingSpot.getParkingType(),
+                parkingSpot.isAvailable()));
+        copy.setVehicleRegNumber(ticket.getVehicleRegNumber());
+        copy.setPrice(ticket.getPrice());
+        copy.setInTime(ticket.getInTime());
+        copy.setOutTime(ticket.getOutTime());
+        copy.setDiscount(ticket.getDiscount());
+        return copy;
+    }
+}
@@ -1,8 +1,12 @@
 package com.parkit.parkingsystem.dao;
 
+import com.parkit.parkingsystem.config.ConnectionState;
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -11,25 +15,142 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.logging.log4j.util.Unbox.box;
 
 public class ParkingSpotDAO {
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
 
+    private static final LatencyHistogram loadAvailableSpotsLatency =
+            Metrics.histogram("ParkingSpotDAO.loadAvailableSpots");
+    private static final LatencyHistogram getNextAvailableSlotLatency =
+            Metrics.histogram("ParkingSpotDAO.getNextAvailableSlot");
+    private static final LatencyHistogram getFreeSpotCountLatency =
+            Metrics.histogram("ParkingSpotDAO.getFreeSpotCount");
+    private static final LatencyHistogram getOccupiedSpotCountLatency =
+            Metrics.histogram("ParkingSpotDAO.getOccupiedSpotCount");
+    private static final LatencyHistogram reserveNextAvailableSlotLatency =
+            Metrics.histogram("ParkingSpotDAO.reserveNextAvailableSlot");
+    private static final LatencyHistogram updateParkingLatency =
+            Metrics.histogram("ParkingSpotDAO.updateParking");
+
+    private static final int CONNECTION_FAILURE = -2;
+
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    public FreeSpotIndex freeSpotIndex = new FreeSpotIndex();
+
+    /*
+     * When both are set and the free spots are loaded, reservations and updates keep working
+     * while the database is unreachable: they are served by the index and journaled for later
+     */
+    public ConnectionState connectionState;
+
+    public TicketWriteBehind ticketWriteBehind;
+
+    /*
+     * Loads the free spots in memory, once loaded the next available slot is read from the index
+     * and kept in sync by updateParking
+     */
+    public boolean loadAvailableSpots() {
+        long startNanos = System.nanoTime();
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            Map<ParkingType, List<Integer>> availableSpots = new EnumMap<>(ParkingType.class);
+            try (PreparedStatement ps =
+                    con.prepareStatement(DBConstants.GET_AVAILABLE_PARKING_SPOTS);
+                    ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    availableSpots.computeIfAbsent(ParkingType.valueOf(rs.getString(2)),
+                            parkingType -> new ArrayList<>()).add(rs.getInt(1));
+                }
+            }
+            Map<ParkingType, Integer> spotCounts = new EnumMap<>(ParkingType.class);
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_PARKING_SPOT_COUNTS);
+                    ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    spotCounts.put(ParkingType.valueOf(rs.getString(1)), rs.getInt(2));
+                }
+            }
+            freeSpotIndex.load(availableSpots, spotCounts);
+            return true;
+        } catch (ClassNotFoundException | SQLException e) {
+            logger.error("Error loading available parking spots", e);
+            return false;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+            loadAvailableSpotsLatency.recordSince(startNanos);
+        }
+    }
+
+    /*
+     * Sets the index entry of one spot from the parking table, for a spot changed behind the
+     * index's back
+     */
+    public boolean reloadSpot(int parkingNumber) {
+        if (!freeSpotIndex.isLoaded()) {
+            return true;
+        }
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_PARKING_SPOT)) {
+                ps.setInt(1, parkingNumber);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    freeSpotIndex.setAvailable(ParkingType.valueOf(rs.getString(1)),
+                            parkingNumber, rs.getBoolean(2));
+                    return true;
+                }
+            }
+        } catch (ClassNotFoundException | SQLException e) {
+            logger.error("Error reloading parking spot {}", box(parkingNumber), e);
+            return false;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
     public int getNextAvailableSlot(ParkingType parkingType) {
+        long startNanos = System.nanoTime();
+        if (freeSpotIndex.isLoaded()) {
+            int parkingNumber = freeSpotIndex.getLowestAvailable(parkingType);
+            getNextAvailableSlotLatency.recordSince(startNanos);
+            return parkingNumber;
+        }
+        try {
+            // Availability shown to drivers, the reservation itself reads the primary
+            return queryNextAvailableSlot(parkingType, 0, false);
+        } finally {
+            getNextAvailableSlotLatency.recordSince(startNanos);
+        }
+    }
+
+    /*
+     * Lowest free spot numbered above afterNumber, 0 when there is none
+     */
+    private int queryNextAvailableSlot(ParkingType parkingType, int afterNumber,
+            boolean primary) {
         Connection con = null;
         int result = -1;
         try {
-            con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
-            ps.setString(1, parkingType.toString());
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                result = rs.getInt(1);;
-            }
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
+            con = primary ? dataBaseConfig.getConnection() : dataBaseConfig.getReadConnection(null);
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT)) {
+                ps.setString(1, parkingType.toString());
+                ps.setInt(2, afterNumber);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        result = rs.getInt(1);
+                    }
+                }
+            }
         } catch (ClassNotFoundException | SQLException e) {
             logger.error("Error fetching next available slot", e);
         } finally {
@@ -38,22 +159,195 @@ public class ParkingSpotDAO {
         return result;
     }
 
+    /*
+     * Number of free spots of this type, read from the index counters once loaded. Returns -1 on
+     * error.
+     */
+    public long getFreeSpotCount(ParkingType parkingType) {
+        long startNanos = System.nanoTime();
+        try {
+            if (freeSpotIndex.isLoaded()) {
+                return freeSpotIndex.getAvailableCount(parkingType);
+            }
+            return countParkingSpots(parkingType, true);
+        } finally {
+            getFreeSpotCountLatency.recordSince(startNanos);
+        }
+    }
+
+    /*
+     * Number of occupied spots of this type, read from the index counters once loaded. Returns -1
+     * on error.
+     */
+    public long getOccupiedSpotCount(ParkingType parkingType) {
+        long startNanos = System.nanoTime();
+        try {
+            if (freeSpotIndex.isLoaded()) {
+                return freeSpotIndex.getOccupiedCount(parkingType);
+            }
+            return countParkingSpots(parkingType, false);
+        } finally {
+            getOccupiedSpotCountLatency.recordSince(startNanos);
+        }
+    }
+
+    private long countParkingSpots(ParkingType parkingType, boolean available) {
+        Connection con = null;
+        long result = -1;
+        try {
+            // Availability shown to drivers, the reservation itself runs on the primary
+            con = dataBaseConfig.getReadConnection(null);
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.COUNT_PARKING_SPOTS)) {
+                ps.setString(1, parkingType.toString());
+                ps.setBoolean(2, available);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        result = rs.getLong(1);
+                    }
+                }
+            }
+        } catch (ClassNotFoundException | SQLException e) {
+            logger.error("Error counting parking spots", e);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return result;
+    }
+
+    /*
+     * Claims the lowest free spot of this type and marks it unavailable in one step, so that two
+     * gates can never be given the same spot. A spot taken by another gate in the meantime is
+     * skipped for the next one: it leaves the index, and without the index the next query only
+     * looks above it, so that a transaction snapshot still showing it free cannot hand it out
+     * again. This ends once the spots run out. Returns the spot number, 0 when the parking is
+     * full or -1 on error.
+     */
+    public int reserveNextAvailableSlot(ParkingType parkingType) {
+        long startNanos = System.nanoTime();
+        try {
+            int lastTried = 0;
+            while (true) {
+                int parkingNumber = freeSpotIndex.isLoaded()
+                        ? freeSpotIndex.claimLowestAvailable(parkingType)
+                        : queryNextAvailableSlot(parkingType, lastTried, true);
+                if (parkingNumber <= 0) {
+                    return parkingNumber;
+                }
+                if (isOffline()) {
+                    return reserveOffline(new ParkingSpot(parkingNumber, parkingType, false));
+                }
+                int updateRowCount = reserveParkingSpot(parkingNumber);
+                if (updateRowCount == CONNECTION_FAILURE && canWorkOffline()) {
+                    connectionState.setOffline(true);
+                    return reserveOffline(new ParkingSpot(parkingNumber, parkingType, false));
+                }
+                if (updateRowCount == 1) {
+                    if (freeSpotIndex.isLoaded()) {
+                        UnitOfWork.afterRollback(() -> freeSpotIndex.setAvailable(parkingType,
+                                parkingNumber, true));
+                    }
+                    return parkingNumber;
+                }
+                if (updateRowCount < 0) {
+                    if (freeSpotIndex.isLoaded()) {
+                        freeSpotIndex.setAvailable(parkingType, parkingNumber, true);
+                    }
+                    return -1;
+                }
+                // Spot was taken by another process in the meantime, it stays out of the index
+                logger.debug("Parking spot {} already taken, retrying", box(parkingNumber));
+                lastTried = parkingNumber;
+            }
+        } finally {
+            reserveNextAvailableSlotLatency.recordSince(startNanos);
+        }
+    }
+
+    private int reserveParkingSpot(int parkingNumber) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.RESERVE_PARKING_SPOT)) {
+                ps.setInt(1, parkingNumber);
+                return ps.executeUpdate();
+            }
+        } catch (ClassNotFoundException | SQLException e) {
+            logger.error("Error reserving parking spot", e);
+            return ConnectionState.isConnectionFailure(e) ? CONNECTION_FAILURE : -1;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
     public boolean updateParking(ParkingSpot parkingSpot) {
+        long startNanos = System.nanoTime();
+        if (isOffline()) {
+            boolean updated = updateOffline(parkingSpot);
+            updateParkingLatency.recordSince(startNanos);
+            return updated;
+        }
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
-            ps.setBoolean(1, parkingSpot.isAvailable());
-            ps.setInt(2, parkingSpot.getId());
-            int updateRowCount = ps.executeUpdate();
-            dataBaseConfig.closePreparedStatement(ps);
+            int updateRowCount;
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT)) {
+                ps.setBoolean(1, parkingSpot.isAvailable());
+                ps.setInt(2, parkingSpot.getId());
+                updateRowCount = ps.executeUpdate();
+            }
+            if (updateRowCount == 1 && freeSpotIndex.isLoaded()) {
+                ParkingType parkingType = parkingSpot.getParkingType();
+                int parkingNumber = parkingSpot.getId();
+                boolean available = parkingSpot.isAvailable();
+                UnitOfWork.afterCommit(() -> freeSpotIndex.setAvailable(parkingType,
+                        parkingNumber, available));
+            }
             return (updateRowCount == 1);
         } catch (ClassNotFoundException | SQLException e) {
             logger.error("Error updating parking info", e);
+            if (ConnectionState.isConnectionFailure(e) && canWorkOffline()) {
+                connectionState.setOffline(true);
+                return updateOffline(parkingSpot);
+            }
             return false;
         } finally {
             dataBaseConfig.closeConnection(con);
+            updateParkingLatency.recordSince(startNanos);
         }
     }
 
+    private boolean canWorkOffline() {
+        return connectionState != null && ticketWriteBehind != null && freeSpotIndex.isLoaded();
+    }
+
+    /*
+     * Spots also go through the journal right after offline mode, until the updates journaled
+     * while offline are written, so that the database gets every update of a spot in order
+     */
+    private boolean isOffline() {
+        return canWorkOffline()
+                && (connectionState.isOffline() || ticketWriteBehind.hasPendingParkingUpdates());
+    }
+
+    /*
+     * The spot was already claimed from the index, the database learns about it later
+     */
+    private int reserveOffline(ParkingSpot parkingSpot) {
+        UnitOfWork.afterRollback(() -> freeSpotIndex.setAvailable(parkingSpot.getParkingType(),
+                parkingSpot.getId(), true));
+        UnitOfWork.afterCommit(() -> ticketWriteBehind.submitParkingUpdate(parkingSpot));
+        return parkingSpot.getId();
+    }
+
+    private boolean updateOffline(ParkingSpot parkingSpot) {
+        ParkingSpot updatedSpot = new ParkingSpot(parkingSpot.getId(),
+                parkingSpot.getParkingType(), parkingSpot.isAvailable());
+        UnitOfWork.afterCommit(() -> {
+            ticketWriteBehind.submitParkingUpdate(updatedSpot);
+            freeSpotIndex.setAvailable(updatedSpot.getParkingType(), updatedSpot.getId(),
+                    updatedSpot.isAvailable());
+        });
+        return true;
+    }
+
 }
@@ -0,0 +1,80 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/*
+ * Moves closed tickets from ticket to ticket_archive, so that the ticket table only holds the
+ * open and recently closed tickets. vehicle_summary already counts them and is left as is. Meant
+ * to run inside a UnitOfWork, the copy and the delete of a batch then commit together.
+ */
+public class TicketArchiveDAO {
+
+    private static final Logger logger = LogManager.getLogger("TicketArchiveDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    /*
+     * Archives up to batchSize tickets closed before closedBefore, oldest first. The last ticket
+     * written always stays, MySQL would otherwise give its ID again after a restart. Returns the
+     * number of tickets archived, -1 on error.
+     */
+    public int archiveClosedTickets(Date closedBefore, int batchSize) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            int lastId;
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_LAST_TICKET_ID);
+                    ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getObject(1) == null) {
+                    return 0;
+                }
+                lastId = rs.getInt(1);
+            }
+            List<Integer> ids = new ArrayList<>();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKETS_TO_ARCHIVE)) {
+                // OUT_TIME before, ID before, limit
+                ps.setTimestamp(1, new Timestamp(closedBefore.getTime()));
+                ps.setInt(2, lastId);
+                ps.setInt(3, batchSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    // ID
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                    }
+                }
+            }
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            try (PreparedStatement archive = con.prepareStatement(DBConstants.ARCHIVE_TICKET);
+                    PreparedStatement delete = con.prepareStatement(DBConstants.DELETE_TICKET)) {
+                for (int id : ids) {
+                    archive.setInt(1, id);
+                    archive.addBatch();
+                    delete.setInt(1, id);
+                    delete.addBatch();
+                }
+                archive.executeBatch();
+                delete.executeBatch();
+            }
+            return ids.size();
+        } catch (SQLException | ClassNotFoundException e) {
+            logger.error("Error archiving closed tickets", e);
+            return -1;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
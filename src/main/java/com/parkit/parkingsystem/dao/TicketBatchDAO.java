@@ -0,0 +1,200 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.TicketChunk;
+import com.parkit.parkingsystem.model.TicketHistoryChunk;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/*
+ * Bulk access to the ticket table, for jobs going over months of history. History is read from
+ * the replica when there is one, and covers the archived tickets as well.
+ */
+public class TicketBatchDAO {
+
+    private static final Logger logger = LogManager.getLogger("TicketBatchDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    public interface ChunkHandler<C> {
+        /*
+         * Returns false to stop streaming
+         */
+        boolean handle(C chunk);
+    }
+
+    /*
+     * Streams the tickets closed between from (included) and to (excluded) through a forward-only
+     * cursor, handing them over one chunk at a time. Returns false if streaming failed or was
+     * stopped by the handler.
+     */
+    public boolean forEachClosedTicketChunk(Date from, Date to, TicketChunk chunk,
+            ChunkHandler<TicketChunk> handler) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getReadConnection(null);
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_CLOSED_TICKETS,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // OUT_TIME from, OUT_TIME to, in ticket then in ticket_archive
+                ps.setTimestamp(1, new Timestamp(from.getTime()));
+                ps.setTimestamp(2, new Timestamp(to.getTime()));
+                ps.setTimestamp(3, new Timestamp(from.getTime()));
+                ps.setTimestamp(4, new Timestamp(to.getTime()));
+                ps.setFetchSize(DBConstants.FETCH_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    // t.ID, p.TYPE, t.IN_TIME, t.OUT_TIME, t.DISCOUNT, t.PRICE
+                    boolean proceed = true;
+                    chunk.clear();
+                    while (proceed && rs.next()) {
+                        chunk.add(rs.getInt(1),
+                                ParkingType.valueOf(rs.getString(2)),
+                                rs.getTimestamp(3).getTime(),
+                                rs.getTimestamp(4).getTime(),
+                                rs.getBoolean(5),
+                                rs.getDouble(6));
+                        if (chunk.isFull()) {
+                            proceed = handler.handle(chunk);
+                            chunk.clear();
+                        }
+                    }
+                    if (proceed && chunk.getSize() > 0) {
+                        proceed = handler.handle(chunk);
+                        chunk.clear();
+                    }
+                    return proceed;
+                }
+            }
+        } catch (SQLException | ClassNotFoundException e) {
+            logger.error("Error streaming closed tickets", e);
+            return false;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /*
+     * Streams the tickets after afterId in ID order, stopping before the first ticket still open so
+     * that every ticket is handed over once and closed. Returns false if streaming failed or was
+     * stopped by the handler.
+     */
+    public boolean forEachTicketChunkToExport(int afterId, TicketHistoryChunk chunk,
+            ChunkHandler<TicketHistoryChunk> handler) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getReadConnection(null);
+            int firstOpenId = Integer.MAX_VALUE;
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_FIRST_OPEN_TICKET_ID);
+                    ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getObject(1) != null) {
+                    firstOpenId = rs.getInt(1);
+                }
+            }
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKETS_TO_EXPORT,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // ID after, ID before, in ticket then in ticket_archive
+                ps.setInt(1, afterId);
+                ps.setInt(2, firstOpenId);
+                ps.setInt(3, afterId);
+                ps.setInt(4, firstOpenId);
+                ps.setFetchSize(DBConstants.FETCH_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    // t.ID, t.PARKING_NUMBER, t.VEHICLE_REG_NUMBER, p.TYPE, t.IN_TIME, t.OUT_TIME,
+                    // t.DISCOUNT, t.PRICE
+                    boolean proceed = true;
+                    chunk.clear();
+                    while (proceed && rs.next()) {
+                        chunk.add(rs.getInt(1),
+                                rs.getInt(2),
+                                rs.getString(3),
+                                ParkingType.valueOf(rs.getString(4)),
+                                rs.getTimestamp(5).getTime(),
+                                rs.getTimestamp(6).getTime(),
+                                rs.getBoolean(7),
+                                rs.getDouble(8));
+                        if (chunk.isFull()) {
+                            proceed = handler.handle(chunk);
+                            chunk.clear();
+                        }
+                    }
+                    if (proceed && chunk.getSize() > 0) {
+                        proceed = handler.handle(chunk);
+                        chunk.clear();
+                    }
+                    return proceed;
+                }
+            }
+        } catch (SQLException | ClassNotFoundException e) {
+            logger.error("Error streaming tickets to export", e);
+            return false;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /*
+     * Sets the price of count tickets in a single JDBC batch per table, through UPDATE_TICKET_PRICE
+     * and UPDATE_ARCHIVED_TICKET_PRICE, each ticket being in only one of them. Nothing else of the
+     * ticket is written. A ticket is only updated while its price is still previousPrices[i],
+     * which may have been read from a lagging replica or changed by another run meanwhile, and
+     * only the tickets updated add the difference to the spend of their plate in vehicle_summary.
+     */
+    public boolean updatePrices(int[] ids, double[] prices, double[] previousPrices, int count) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET_PRICE);
+                    PreparedStatement archived =
+                            con.prepareStatement(DBConstants.UPDATE_ARCHIVED_TICKET_PRICE);
+                    PreparedStatement spend = con.prepareStatement(DBConstants.ADD_TICKET_SPEND)) {
+                for (int i = 0; i < count; i++) {
+                    // PRICE, ID, previous PRICE
+                    ps.setDouble(1, prices[i]);
+                    ps.setInt(2, ids[i]);
+                    ps.setDouble(3, previousPrices[i]);
+                    ps.addBatch();
+                    // PRICE, ID, previous PRICE
+                    archived.setDouble(1, prices[i]);
+                    archived.setInt(2, ids[i]);
+                    archived.setDouble(3, previousPrices[i]);
+                    archived.addBatch();
+                }
+                int[] updateCounts = ps.executeBatch();
+                int[] archivedCounts = archived.executeBatch();
+                int updated = 0;
+                for (int i = 0; i < count; i++) {
+                    if (updateCounts[i] != 1 && archivedCounts[i] != 1) {
+                        logger.info("Price of ticket {} changed since it was read, left as is",
+                                box(ids[i]));
+                        continue;
+                    }
+                    // price difference, ID in ticket, ID in ticket_archive
+                    spend.setDouble(1, prices[i] - previousPrices[i]);
+                    spend.setInt(2, ids[i]);
+                    spend.setInt(3, ids[i]);
+                    spend.addBatch();
+                    updated++;
+                }
+                if (updated > 0) {
+                    spend.executeBatch();
+                }
+            }
+            return true;
+        } catch (SQLException | ClassNotFoundException e) {
+            logger.error("Error updating ticket prices", e);
+            return false;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package com.parkit.parkingsystem.dao;
 
+import com.parkit.parkingsystem.config.ConnectionState;
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import org.apache.logging.log4j.LogManager;
@@ -12,115 +16,367 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.Date;
 
 public class TicketDAO {
 
     private static final Logger logger = LogManager.getLogger("TicketDAO");
 
+    private static final LatencyHistogram loadOpenTicketsLatency =
+            Metrics.histogram("TicketDAO.loadOpenTickets");
+    private static final LatencyHistogram loadKnownPlatesLatency =
+            Metrics.histogram("TicketDAO.loadKnownPlates");
+    private static final LatencyHistogram saveTicketLatency =
+            Metrics.histogram("TicketDAO.saveTicket");
+    private static final LatencyHistogram getTicketLatency =
+            Metrics.histogram("TicketDAO.getTicket");
+    private static final LatencyHistogram updateTicketLatency =
+            Metrics.histogram("TicketDAO.updateTicket");
+    private static final LatencyHistogram getNbTicketLatency =
+            Metrics.histogram("TicketDAO.getNbTicket");
+    private static final LatencyHistogram isRecurringUserLatency =
+            Metrics.histogram("TicketDAO.isRecurringUser");
+
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
+    public KnownPlatesCache knownPlatesCache = new KnownPlatesCache();
+
+    public OpenTicketIndex openTicketIndex = new OpenTicketIndex();
+
+    /*
+     * When set, saveTicket and updateTicket hand their writes over to it once the current unit
+     * of work commits. The open ticket index must then be loaded, as getTicket cannot find
+     * tickets not written yet in the database.
+     */
+    public TicketWriteBehind ticketWriteBehind;
+
+    /*
+     * While offline, the discount is only granted to the plates the known plates cache has
+     * confirmed, a possible false positive of its Bloom filter cannot be checked
+     */
+    public ConnectionState connectionState;
+
+    /*
+     * When set, a plate that parked in another garage also gets the discount
+     */
+    public GarageRouter garageRouter;
+
+    /*
+     * Loads the tickets of the vehicles currently parked, once loaded getTicket is answered from
+     * memory and kept in sync by saveTicket and updateTicket
+     */
+    public boolean loadOpenTickets() {
+        long startNanos = System.nanoTime();
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_OPEN_TICKETS)) {
+                // t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, t.DISCOUNT, p.TYPE,
+                // t.VEHICLE_REG_NUMBER
+                ps.setFetchSize(DBConstants.FETCH_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    openTicketIndex.clear();
+                    while (rs.next()) {
+                        openTicketIndex.add(readTicket(rs, rs.getString(8)));
+                    }
+                }
+            }
+            openTicketIndex.setLoaded(true);
+            return true;
+        } catch (SQLException | ClassNotFoundException e) {
+            logger.error("Error loading open tickets", e);
+            return false;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+            loadOpenTicketsLatency.recordSince(startNanos);
+        }
+    }
+
+    /*
+     * Warms the known plates cache, once loaded the discount lookup is answered from memory for
+     * new plates and for recently confirmed ones
+     */
+    public boolean loadKnownPlates() {
+        long startNanos = System.nanoTime();
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_KNOWN_PLATES,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(DBConstants.FETCH_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        knownPlatesCache.add(rs.getString(1));
+                    }
+                }
+            }
+            knownPlatesCache.setLoaded(true);
+            return true;
+        } catch (SQLException | ClassNotFoundException e) {
+            logger.error("Error loading known plates", e);
+            return false;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+            loadKnownPlatesLatency.recordSince(startNanos);
+        }
+    }
+
     public boolean saveTicket(Ticket ticket) {
+        long startNanos = System.nanoTime();
+        if (ticketWriteBehind != null) {
+            Ticket savedTicket = openTicketIndex.snapshot(ticket);
+            String vehicleRegNumber = ticket.getVehicleRegNumber();
+            boolean open = ticket.getOutTime() == null && openTicketIndex.isLoaded();
+            UnitOfWork.afterCommit(() -> {
+                ticketWriteBehind.submitSave(savedTicket);
+                knownPlatesCache.add(vehicleRegNumber);
+                knownPlatesCache.confirm(vehicleRegNumber);
+                if (open) {
+                    openTicketIndex.add(openTicketIndex.snapshot(savedTicket));
+                }
+            });
+            saveTicketLatency.recordSince(startNanos);
+            return true;
+        }
         Connection con = null;
-        PreparedStatement ps = null;
         try {
             con = dataBaseConfig.getConnection();
-            ps = con.prepareStatement(DBConstants.SAVE_TICKET);
-            // ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, DISCOUNT)
-            // ps.setInt(1,ticket.getId());
-            ps.setInt(1, ticket.getParkingSpot().getId());
-            ps.setString(2, ticket.getVehicleRegNumber());
-            ps.setDouble(3, ticket.getPrice());
-            ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
-            ps.setTimestamp(5, (ticket.getOutTime() == null) ? null
-                    : (new Timestamp(ticket.getOutTime().getTime())));
-            ps.setBoolean(6, ticket.getDiscount());
-            ps.execute();
+            dataBaseConfig.markWritten(ticket.getVehicleRegNumber());
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                // ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, DISCOUNT)
+                // ps.setInt(1,ticket.getId());
+                ps.setInt(1, ticket.getParkingSpot().getId());
+                ps.setString(2, ticket.getVehicleRegNumber());
+                ps.setDouble(3, ticket.getPrice());
+                ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
+                ps.setTimestamp(5, (ticket.getOutTime() == null) ? null
+                        : (new Timestamp(ticket.getOutTime().getTime())));
+                ps.setBoolean(6, ticket.getDiscount());
+                ps.execute();
+                try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        ticket.setId(generatedKeys.getInt(1));
+                    }
+                }
+            }
+            addVisit(con, ticket.getVehicleRegNumber(), 1, ticket.getPrice(),
+                    ticket.getOutTime() == null ? ticket.getInTime() : ticket.getOutTime());
+            String vehicleRegNumber = ticket.getVehicleRegNumber();
+            boolean open = ticket.getOutTime() == null && openTicketIndex.isLoaded();
+            Ticket savedTicket = open ? openTicketIndex.snapshot(ticket) : null;
+            UnitOfWork.afterCommit(() -> {
+                knownPlatesCache.add(vehicleRegNumber);
+                knownPlatesCache.confirm(vehicleRegNumber);
+                if (open) {
+                    openTicketIndex.add(savedTicket);
+                }
+            });
             return true;
         } catch (SQLException | ClassNotFoundException e) {
             logger.error("Error saving ticket", e);
             return false;
         } finally {
-            dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
+            saveTicketLatency.recordSince(startNanos);
         }
     }
 
     public Ticket getTicket(String vehicleRegNumber) {
+        long startNanos = System.nanoTime();
+        if (openTicketIndex.isLoaded()) {
+            Ticket ticket = openTicketIndex.get(vehicleRegNumber);
+            if (ticket == null) {
+                logger.error("No ticket was found with this registration number");
+            }
+            getTicketLatency.recordSince(startNanos);
+            return ticket;
+        }
         Connection con = null;
         Ticket ticket = null;
         try {
-            con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET);
-            // t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, t.DISCOUNT, p.TYPE
-            ps.setString(1, vehicleRegNumber);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                ticket = new Ticket();
-                ParkingSpot parkingSpot = new ParkingSpot(
-                        rs.getInt(1),
-                        ParkingType.valueOf(rs.getString(7)),
-                        false);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setId(rs.getInt(2));
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(rs.getDouble(3));
-                ticket.setInTime(rs.getTimestamp(4));
-                ticket.setOutTime(rs.getTimestamp(5));
-                ticket.setDiscount(rs.getBoolean(6));
-            } else {
-                logger.error("No ticket was found with this registration number");
+            con = dataBaseConfig.getReadConnection(vehicleRegNumber);
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET)) {
+                // t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, t.DISCOUNT, p.TYPE
+                ps.setString(1, vehicleRegNumber);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        ticket = readTicket(rs, vehicleRegNumber);
+                    } else {
+                        logger.error("No ticket was found with this registration number");
+                    }
+                }
             }
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
         } catch (SQLException | ClassNotFoundException e) {
             logger.error("Error fetching next available slot", e);
         } finally {
             dataBaseConfig.closeConnection(con);
+            getTicketLatency.recordSince(startNanos);
         }
         return ticket;
     }
 
+    private static Ticket readTicket(ResultSet rs, String vehicleRegNumber) throws SQLException {
+        Ticket ticket = new Ticket();
+        ParkingSpot parkingSpot = new ParkingSpot(
+                rs.getInt(1),
+                ParkingType.valueOf(rs.getString(7)),
+                false);
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setId(rs.getInt(2));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(rs.getDouble(3));
+        ticket.setInTime(rs.getTimestamp(4));
+        ticket.setOutTime(rs.getTimestamp(5));
+        ticket.setDiscount(rs.getBoolean(6));
+        return ticket;
+    }
+
     public boolean updateTicket(Ticket ticket) {
+        long startNanos = System.nanoTime();
+        if (ticketWriteBehind != null) {
+            Ticket closedTicket = openTicketIndex.snapshot(ticket);
+            UnitOfWork.afterCommit(() -> {
+                ticketWriteBehind.submitUpdate(closedTicket);
+                openTicketIndex.remove(closedTicket);
+            });
+            updateTicketLatency.recordSince(startNanos);
+            return true;
+        }
         Connection con = null;
-        PreparedStatement ps = null;
         try {
             con = dataBaseConfig.getConnection();
-            ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
-            // PRICE, OUT_TIME, ID
-            ps.setDouble(1, ticket.getPrice());
-            ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
-            ps.setInt(3, ticket.getId());
-            ps.execute();
+            dataBaseConfig.markWritten(ticket.getVehicleRegNumber());
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET)) {
+                // PRICE, OUT_TIME, ID
+                ps.setDouble(1, ticket.getPrice());
+                ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
+                ps.setInt(3, ticket.getId());
+                if (ps.executeUpdate() != 1) {
+                    logger.error("No ticket was found with id {}", ticket.getId());
+                    return false;
+                }
+            }
+            addVisit(con, ticket.getVehicleRegNumber(), 0, ticket.getPrice(), ticket.getOutTime());
+            if (openTicketIndex.isLoaded()) {
+                Ticket closedTicket = openTicketIndex.snapshot(ticket);
+                UnitOfWork.afterCommit(() -> openTicketIndex.remove(closedTicket));
+            }
             return true;
         } catch (SQLException | ClassNotFoundException e) {
             logger.error("Error saving ticket info", e);
+            return false;
         } finally {
-            dataBaseConfig.closePreparedStatement(ps);
             dataBaseConfig.closeConnection(con);
+            updateTicketLatency.recordSince(startNanos);
         }
-        return false;
     }
 
+    /*
+     * Adds to the summary of the plate, on the connection of the ticket write so that both commit
+     * together inside a UnitOfWork
+     */
+    private static void addVisit(Connection con, String vehicleRegNumber, int visits,
+            double spent, Date lastVisit) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(DBConstants.ADD_VEHICLE_VISIT)) {
+            // VEHICLE_REG_NUMBER, NB_VISIT, TOTAL_SPENT, LAST_VISIT
+            ps.setString(1, vehicleRegNumber);
+            ps.setInt(2, visits);
+            ps.setDouble(3, spent);
+            ps.setTimestamp(4, new Timestamp(lastVisit.getTime()));
+            ps.executeUpdate();
+        }
+    }
+
+    /*
+     * Visits of this plate, read from vehicle_summary
+     */
     public int getNbTicket(String vehicleRegNumber) {
+        long startNanos = System.nanoTime();
         int nbTicket = 0;
         Connection con = null;
         try {
-            con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_NB_TICKET);
-            // VEHICLE_REG_NUMBER
-            ps.setString(1, vehicleRegNumber);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                nbTicket = rs.getInt(1);
+            con = dataBaseConfig.getReadConnection(vehicleRegNumber);
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_NB_TICKET)) {
+                // VEHICLE_REG_NUMBER
+                ps.setString(1, vehicleRegNumber);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        nbTicket = rs.getInt(1);
+                    }
+                }
             }
-            dataBaseConfig.closeResultSet(rs);
-            dataBaseConfig.closePreparedStatement(ps);
         } catch (SQLException | ClassNotFoundException e) {
             logger.error("Error fetching next available slot", e);
         } finally {
             dataBaseConfig.closeConnection(con);
+            getNbTicketLatency.recordSince(startNanos);
         }
         return nbTicket;
     }
+
+    /*
+     * Tells whether this plate already has a ticket in this garage or, with a garage router, in
+     * any other garage
+     */
+    public boolean isRecurringUser(String vehicleRegNumber) {
+        long startNanos = System.nanoTime();
+        try {
+            if (isKnownPlate(vehicleRegNumber)) {
+                return true;
+            }
+            return garageRouter != null && garageRouter.isKnownInOtherGarages(
+                    dataBaseConfig.getGarageId(), vehicleRegNumber);
+        } finally {
+            isRecurringUserLatency.recordSince(startNanos);
+        }
+    }
+
+    /*
+     * Tells whether this plate already has a ticket in this garage, the known plates cache
+     * answers when it can. Offline, a plate it has not confirmed is taken as unknown.
+     */
+    public boolean isKnownPlate(String vehicleRegNumber) {
+        if (knownPlatesCache.isLoaded()) {
+            if (!knownPlatesCache.mightBeKnown(vehicleRegNumber)) {
+                return false;
+            }
+            if (knownPlatesCache.isConfirmed(vehicleRegNumber)) {
+                return true;
+            }
+        }
+        if (connectionState != null && connectionState.isOffline()) {
+            return false;
+        }
+        boolean knownPlate = hasTicket(vehicleRegNumber);
+        if (knownPlate) {
+            knownPlatesCache.confirm(vehicleRegNumber);
+        }
+        return knownPlate;
+    }
+
+    private boolean hasTicket(String vehicleRegNumber) {
+        boolean hasTicket = false;
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getReadConnection(vehicleRegNumber);
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.HAS_TICKET)) {
+                // VEHICLE_REG_NUMBER
+                ps.setString(1, vehicleRegNumber);
+                try (ResultSet rs = ps.executeQuery()) {
+                    hasTicket = rs.next();
+                }
+            }
+        } catch (SQLException | ClassNotFoundException e) {
+            logger.error("Error checking ticket history", e);
+            if (connectionState != null && ConnectionState.isConnectionFailure(e)) {
+                connectionState.setOffline(true);
+            }
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return hasTicket;
+    }
 }
@@ -0,0 +1,579 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.ConnectionState;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.WriteBehindConstants;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.AppendOnlyJournal;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/*
+ * Takes ticket inserts and updates off the gates: they are queued, and journaled when a journal
+ * is given, then a background writer sends them to the database in JDBC batches of up to
+ * flushSize writes, waiting at most flushInterval to fill a batch. When the queue is full the
+ * gates wait for the writer. Writes left in the journal by a crash are sent again on start.
+ *
+ * In offline mode the parking spot updates are journaled here as well. The writer then acts as
+ * the reconciler: it keeps trying until the database is back, and ends offline mode once a batch
+ * is written with at most ONLINE_BACKLOG writes left behind it, so that a steady flow of gate
+ * events does not keep the gates offline.
+ *
+ * A ticket insert the database keeps rejecting is dropped. The spot it took is then given back,
+ * in the database and in the index of parkingSpotDAO when set, so that it is not lost for good.
+ *
+ * Ticket ids are not known before the insert is written, so a ticket without id is updated
+ * through its plate and in-time. Inserts are skipped when the ticket is already there and
+ * updates only close a ticket still open, which makes replaying the journal safe. Times are
+ * written to the second.
+ */
+public class TicketWriteBehind {
+
+    private static final Logger logger = LogManager.getLogger("TicketWriteBehind");
+
+    private static final byte SAVE = 1;
+    private static final byte UPDATE = 2;
+    private static final byte PARKING = 3;
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    public ConnectionState connectionState;
+
+    public ParkingSpotDAO parkingSpotDAO;
+
+    private final AppendOnlyJournal journal;
+    private final BlockingQueue<PendingWrite> queue;
+    private final int flushSize;
+    private final long flushIntervalMs;
+
+    private final Object submitLock = new Object();
+    private final Object flushMonitor = new Object();
+    private long submittedCount;
+    private long writtenCount;
+    private long pendingParkingCount;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    /*
+     * Without a journal, queued writes are lost if the process dies
+     */
+    public TicketWriteBehind(AppendOnlyJournal journal) {
+        this(journal, WriteBehindConstants.QUEUE_CAPACITY, WriteBehindConstants.FLUSH_SIZE,
+                WriteBehindConstants.FLUSH_INTERVAL_MS);
+    }
+
+    public TicketWriteBehind(AppendOnlyJournal journal, int queueCapacity, int flushSize,
+            long flushIntervalMs) {
+        this.journal = journal;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flushSize = flushSize;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    /*
+     * Starts the writer, after queueing again what the journal holds from a previous run
+     */
+    public void start() {
+        running = true;
+        writer = new Thread(this::drain, "ticket-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+        if (journal != null) {
+            List<AppendOnlyJournal.Entry> entries = journal.readUnapplied();
+            for (AppendOnlyJournal.Entry entry : entries) {
+                PendingWrite write = PendingWrite.decode(entry.getPayload());
+                write.journalPosition = entry.getEndPosition();
+                enqueue(write);
+            }
+            if (!entries.isEmpty()) {
+                logger.info("Replaying {} ticket writes from the journal", entries.size());
+            }
+        }
+    }
+
+    /*
+     * Waits up to timeoutMs for the queued writes to be sent, then stops the writer. Whatever is
+     * left stays in the journal.
+     */
+    public void stop(long timeoutMs) {
+        if (writer == null) {
+            return;
+        }
+        flush(timeoutMs);
+        running = false;
+        try {
+            writer.join(flushIntervalMs * 2);
+            if (writer.isAlive()) {
+                writer.interrupt();
+                writer.join(flushIntervalMs * 2);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (getPendingCount() > 0) {
+            logger.error("Stopped with {} ticket writes not sent", getPendingCount());
+        }
+    }
+
+    public void submitSave(Ticket ticket) {
+        submit(new PendingWrite(SAVE, ticket));
+    }
+
+    public void submitUpdate(Ticket ticket) {
+        submit(new PendingWrite(UPDATE, ticket));
+    }
+
+    public void submitParkingUpdate(ParkingSpot parkingSpot) {
+        submit(new PendingWrite(parkingSpot.getId(), parkingSpot.isAvailable()));
+    }
+
+    /*
+     * Waits until every write submitted so far is in the database, returns false on timeout
+     */
+    public boolean flush(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (flushMonitor) {
+            long target = submittedCount;
+            while (writtenCount < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    flushMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    public long getPendingCount() {
+        synchronized (flushMonitor) {
+            return submittedCount - writtenCount;
+        }
+    }
+
+    /*
+     * Whether parking spot updates journaled in offline mode are still to be written. Later ones
+     * must come through here too, so that they reach the database after them.
+     */
+    public boolean hasPendingParkingUpdates() {
+        synchronized (flushMonitor) {
+            return pendingParkingCount > 0;
+        }
+    }
+
+    private void submit(PendingWrite write) {
+        byte[] payload = write.encode();
+        synchronized (submitLock) {
+            if (journal != null) {
+                long end;
+                while ((end = journal.append(payload)) < 0) {
+                    logger.error("Ticket journal full, waiting for the database");
+                    flush(flushIntervalMs);
+                }
+                write.journalPosition = end;
+            }
+            enqueue(write);
+        }
+    }
+
+    private void enqueue(PendingWrite write) {
+        synchronized (flushMonitor) {
+            submittedCount++;
+            if (write.type == PARKING) {
+                pendingParkingCount++;
+            }
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(write);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        List<PendingWrite> batch = new ArrayList<>(flushSize);
+        try {
+            while (running || !queue.isEmpty() || !batch.isEmpty()) {
+                if (batch.isEmpty() && !fill(batch)) {
+                    continue;
+                }
+                if (write(batch)) {
+                    written(batch);
+                    batch.clear();
+                } else {
+                    // Database unreachable, the same batch is sent again
+                    Thread.sleep(flushIntervalMs);
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.info("Ticket writer interrupted");
+        }
+    }
+
+    private boolean fill(List<PendingWrite> batch) throws InterruptedException {
+        PendingWrite first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return false;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < flushSize) {
+            queue.drainTo(batch, flushSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= flushSize || remaining <= 0) {
+                break;
+            }
+            PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return true;
+    }
+
+    private void written(List<PendingWrite> batch) {
+        if (journal != null) {
+            journal.checkpoint(batch.get(batch.size() - 1).journalPosition);
+        }
+        synchronized (flushMonitor) {
+            writtenCount += batch.size();
+            for (PendingWrite write : batch) {
+                if (write.type == PARKING) {
+                    pendingParkingCount--;
+                }
+            }
+            // Back online before waking up flush, which callers take as caught up
+            if (submittedCount - writtenCount <= WriteBehindConstants.ONLINE_BACKLOG
+                    && connectionState != null) {
+                connectionState.setOffline(false);
+            }
+            flushMonitor.notifyAll();
+        }
+    }
+
+    /*
+     * Sends the batch in one transaction. Returns false when the database could not be reached.
+     * A batch rejected by the database itself is sent again write by write, and the writes it
+     * still rejects are logged and dropped so that they do not block the ones after them.
+     */
+    private boolean write(List<PendingWrite> batch) {
+        try {
+            writeInTransaction(batch);
+            return true;
+        } catch (SQLException | ClassNotFoundException e) {
+            if (!ConnectionState.isConnectionFailure(e)) {
+                logger.error("Ticket batch rejected, writing it one ticket at a time", e);
+                return writeOneByOne(batch);
+            }
+            logger.error("Unable to write ticket batch, will retry", e);
+            if (connectionState != null) {
+                connectionState.setOffline(true);
+            }
+            return false;
+        }
+    }
+
+    private boolean writeOneByOne(List<PendingWrite> batch) {
+        for (PendingWrite write : batch) {
+            try {
+                writeInTransaction(Collections.singletonList(write));
+            } catch (SQLException | ClassNotFoundException e) {
+                if (ConnectionState.isConnectionFailure(e)) {
+                    logger.error("Unable to write ticket batch, will retry", e);
+                    return false;
+                }
+                logger.error("Dropping {}", write, e);
+                if (write.type == SAVE && !releaseParkingSpot(write.parkingNumber)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Frees the spot of a dropped ticket insert. Returns false when the database could not be
+     * reached, the batch is then sent again.
+     */
+    private boolean releaseParkingSpot(int parkingNumber) {
+        try {
+            writeInTransaction(Collections.singletonList(new PendingWrite(parkingNumber, true)));
+        } catch (SQLException | ClassNotFoundException e) {
+            if (ConnectionState.isConnectionFailure(e)) {
+                logger.error("Unable to release parking spot {}, will retry",
+                        box(parkingNumber), e);
+                return false;
+            }
+            logger.error("Unable to release parking spot {}", box(parkingNumber), e);
+            return true;
+        }
+        logger.info("Released parking spot {} of the dropped ticket", box(parkingNumber));
+        if (parkingSpotDAO != null) {
+            parkingSpotDAO.reloadSpot(parkingNumber);
+        }
+        return true;
+    }
+
+    private void writeInTransaction(List<PendingWrite> batch)
+            throws SQLException, ClassNotFoundException {
+        Connection con = null;
+        PreparedStatement save = null;
+        PreparedStatement updateById = null;
+        PreparedStatement updateOpen = null;
+        PreparedStatement updateParking = null;
+        PreparedStatement addVisit = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            save = con.prepareStatement(DBConstants.SAVE_TICKET_IF_ABSENT);
+            updateById = con.prepareStatement(DBConstants.CLOSE_TICKET);
+            updateOpen = con.prepareStatement(DBConstants.UPDATE_OPEN_TICKET);
+            updateParking = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
+            addVisit = con.prepareStatement(DBConstants.ADD_VEHICLE_VISIT);
+            List<PendingWrite> saves = new ArrayList<>();
+            List<PendingWrite> updatesById = new ArrayList<>();
+            List<PendingWrite> updatesOpen = new ArrayList<>();
+            int parkingUpdates = 0;
+            for (PendingWrite write : batch) {
+                if (write.type == PARKING) {
+                    // AVAILABLE, PARKING_NUMBER
+                    updateParking.setBoolean(1, write.available);
+                    updateParking.setInt(2, write.parkingNumber);
+                    updateParking.addBatch();
+                    parkingUpdates++;
+                } else if (write.type == SAVE) {
+                    // PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, DISCOUNT,
+                    // VEHICLE_REG_NUMBER, IN_TIME
+                    save.setInt(1, write.parkingNumber);
+                    save.setString(2, write.vehicleRegNumber);
+                    save.setDouble(3, write.price);
+                    save.setTimestamp(4, new Timestamp(write.inTime));
+                    save.setTimestamp(5, write.outTime < 0 ? null : new Timestamp(write.outTime));
+                    save.setBoolean(6, write.discount);
+                    save.setString(7, write.vehicleRegNumber);
+                    save.setTimestamp(8, new Timestamp(write.inTime));
+                    save.addBatch();
+                    saves.add(write);
+                } else if (write.id > 0) {
+                    // PRICE, OUT_TIME, ID
+                    updateById.setDouble(1, write.price);
+                    updateById.setTimestamp(2, new Timestamp(write.outTime));
+                    updateById.setInt(3, write.id);
+                    updateById.addBatch();
+                    updatesById.add(write);
+                } else {
+                    // PRICE, OUT_TIME, VEHICLE_REG_NUMBER, IN_TIME
+                    updateOpen.setDouble(1, write.price);
+                    updateOpen.setTimestamp(2, new Timestamp(write.outTime));
+                    updateOpen.setString(3, write.vehicleRegNumber);
+                    updateOpen.setTimestamp(4, new Timestamp(write.inTime));
+                    updateOpen.addBatch();
+                    updatesOpen.add(write);
+                }
+            }
+            // Inserts first, a ticket may be saved and updated within the same batch
+            int visits = 0;
+            if (!saves.isEmpty()) {
+                visits += addVisits(addVisit, saves, save.executeBatch());
+            }
+            if (!updatesById.isEmpty()) {
+                visits += addVisits(addVisit, updatesById, updateById.executeBatch());
+            }
+            if (!updatesOpen.isEmpty()) {
+                visits += addVisits(addVisit, updatesOpen, updateOpen.executeBatch());
+            }
+            if (parkingUpdates > 0) {
+                updateParking.executeBatch();
+            }
+            if (visits > 0) {
+                addVisit.executeBatch();
+            }
+            con.commit();
+            for (PendingWrite write : batch) {
+                if (write.type != PARKING) {
+                    dataBaseConfig.markWritten(write.vehicleRegNumber);
+                }
+            }
+        } catch (SQLException e) {
+            rollback(con);
+            throw e;
+        } finally {
+            dataBaseConfig.closePreparedStatement(save);
+            dataBaseConfig.closePreparedStatement(updateById);
+            dataBaseConfig.closePreparedStatement(updateOpen);
+            dataBaseConfig.closePreparedStatement(updateParking);
+            dataBaseConfig.closePreparedStatement(addVisit);
+            if (con != null) {
+                try {
+                    con.setAutoCommit(true);
+                } catch (SQLException e) {
+                    logger.error("Error while restoring auto-commit", e);
+                }
+            }
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    /*
+     * Batches the vehicle_summary upsert of each ticket write that changed a row. Inserts are
+     * skipped when the ticket is there and updates only close an open ticket, so a replayed write
+     * changes nothing and is not counted twice. Returns the number of upserts batched.
+     */
+    private static int addVisits(PreparedStatement addVisit, List<PendingWrite> writes,
+            int[] updateCounts) throws SQLException {
+        int visits = 0;
+        for (int i = 0; i < writes.size(); i++) {
+            // SUCCESS_NO_INFO when the driver does not tell, the row was then written
+            if (updateCounts[i] == 0) {
+                continue;
+            }
+            PendingWrite write = writes.get(i);
+            // VEHICLE_REG_NUMBER, NB_VISIT, TOTAL_SPENT, LAST_VISIT
+            addVisit.setString(1, write.vehicleRegNumber);
+            addVisit.setInt(2, write.type == SAVE ? 1 : 0);
+            addVisit.setDouble(3, write.price);
+            addVisit.setTimestamp(4, new Timestamp(write.outTime < 0 ? write.inTime
+                    : write.outTime));
+            addVisit.addBatch();
+            visits++;
+        }
+        return visits;
+    }
+
+    private static void rollback(Connection con) {
+        if (con != null) {
+            try {
+                con.rollback();
+            } catch (SQLException e) {
+                logger.error("Error while rolling back ticket batch", e);
+            }
+        }
+    }
+
+    private static class PendingWrite {
+        private final byte type;
+        private final int id;
+        private final int parkingNumber;
+        private final String vehicleRegNumber;
+        private final double price;
+        private final long inTime;
+        private final long outTime;
+        private final boolean discount;
+        private final boolean available;
+        private long journalPosition = -1;
+
+        private PendingWrite(int parkingNumber, boolean available) {
+            this.type = PARKING;
+            this.id = 0;
+            this.parkingNumber = parkingNumber;
+            this.vehicleRegNumber = null;
+            this.price = 0;
+            this.inTime = 0;
+            this.outTime = 0;
+            this.discount = false;
+            this.available = available;
+        }
+
+        private PendingWrite(byte type, Ticket ticket) {
+            this(type, ticket.getId(), ticket.getParkingSpot().getId(),
+                    ticket.getVehicleRegNumber(), ticket.getPrice(),
+                    toSeconds(ticket.getInTime().getTime()),
+                    ticket.getOutTime() == null ? -1 : toSeconds(ticket.getOutTime().getTime()),
+                    ticket.getDiscount());
+        }
+
+        private PendingWrite(byte type, int id, int parkingNumber, String vehicleRegNumber,
+                double price, long inTime, long outTime, boolean discount) {
+            this.type = type;
+            this.id = id;
+            this.parkingNumber = parkingNumber;
+            this.vehicleRegNumber = vehicleRegNumber;
+            this.price = price;
+            this.inTime = inTime;
+            this.outTime = outTime;
+            this.discount = discount;
+            this.available = false;
+        }
+
+        @Override
+        public String toString() {
+            return type == PARKING ? "update of parking spot " + parkingNumber
+                    : "ticket write for vehicle " + vehicleRegNumber;
+        }
+
+        private static long toSeconds(long millis) {
+            return millis - Math.floorMod(millis, 1000L);
+        }
+
+        private byte[] encode() {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(type);
+                if (type == PARKING) {
+                    out.writeInt(parkingNumber);
+                    out.writeBoolean(available);
+                    return bytes.toByteArray();
+                }
+                out.writeInt(id);
+                out.writeInt(parkingNumber);
+                out.writeUTF(vehicleRegNumber);
+                out.writeDouble(price);
+                out.writeLong(inTime);
+                out.writeLong(outTime);
+                out.writeBoolean(discount);
+                return bytes.toByteArray();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static PendingWrite decode(byte[] payload) {
+            try {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+                byte type = in.readByte();
+                if (type == PARKING) {
+                    return new PendingWrite(in.readInt(), in.readBoolean());
+                }
+                return new PendingWrite(type, in.readInt(), in.readInt(), in.readUTF(),
+                        in.readDouble(), in.readLong(), in.readLong(), in.readBoolean());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
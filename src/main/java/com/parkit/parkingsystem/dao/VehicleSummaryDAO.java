@@ -0,0 +1,105 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.model.VehicleSummary;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Reads vehicle_summary, which TicketDAO and TicketWriteBehind keep up to date with every ticket
+ * they write, and builds it from the tickets written before it existed
+ */
+public class VehicleSummaryDAO {
+
+    private static final Logger logger = LogManager.getLogger("VehicleSummaryDAO");
+
+    public DataBaseConfig dataBaseConfig = new DataBaseConfig();
+
+    /*
+     * Returns null when the plate never parked here, or on error
+     */
+    public VehicleSummary getVehicleSummary(String vehicleRegNumber) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getReadConnection(vehicleRegNumber);
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_VEHICLE_SUMMARY)) {
+                // VEHICLE_REG_NUMBER
+                ps.setString(1, vehicleRegNumber);
+                try (ResultSet rs = ps.executeQuery()) {
+                    // NB_VISIT, TOTAL_SPENT, LAST_VISIT
+                    if (rs.next()) {
+                        return new VehicleSummary(vehicleRegNumber, rs.getInt(1), rs.getDouble(2),
+                                rs.getTimestamp(3));
+                    }
+                }
+            }
+        } catch (SQLException | ClassNotFoundException e) {
+            logger.error("Error fetching vehicle summary", e);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return null;
+    }
+
+    /*
+     * Sets the summary of the next batchSize plates after afterPlate, in plate order, to the
+     * totals of their live and archived tickets. Returns the plates summarized, empty once every
+     * plate is done, null on error. Meant to run inside a UnitOfWork, one per batch.
+     */
+    public List<String> summarizePlates(String afterPlate, int batchSize) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            List<String> plates = new ArrayList<>();
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.GET_PLATES_TO_SUMMARIZE)) {
+                // VEHICLE_REG_NUMBER after, in ticket then in ticket_archive, limit
+                ps.setString(1, afterPlate);
+                ps.setString(2, afterPlate);
+                ps.setInt(3, batchSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        plates.add(rs.getString(1));
+                    }
+                }
+            }
+            if (plates.isEmpty()) {
+                return plates;
+            }
+            try (PreparedStatement ps = con.prepareStatement(DBConstants.SUMMARIZE_PLATES);
+                    PreparedStatement set = con.prepareStatement(DBConstants.SET_VEHICLE_SUMMARY)) {
+                // first and last VEHICLE_REG_NUMBER, in ticket then in ticket_archive
+                String first = plates.get(0);
+                String last = plates.get(plates.size() - 1);
+                ps.setString(1, first);
+                ps.setString(2, last);
+                ps.setString(3, first);
+                ps.setString(4, last);
+                try (ResultSet rs = ps.executeQuery()) {
+                    // VEHICLE_REG_NUMBER, count, spent, last visit
+                    while (rs.next()) {
+                        set.setString(1, rs.getString(1));
+                        set.setInt(2, rs.getInt(2));
+                        set.setDouble(3, rs.getDouble(3));
+                        set.setTimestamp(4, rs.getTimestamp(4));
+                        set.addBatch();
+                    }
+                }
+                set.executeBatch();
+            }
+            return plates;
+        } catch (SQLException | ClassNotFoundException e) {
+            logger.error("Error summarizing plates after {}", afterPlate, e);
+            return null;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.parkit.parkingsystem.metrics;
+
+/*
+ * What JMX clients see of a Counter
+ */
+public interface CounterMXBean {
+
+    long getCount();
+}
@@ -0,0 +1,19 @@
+package com.parkit.parkingsystem.metrics;
+
+/*
+ * What JMX clients see of a LatencyHistogram
+ */
+public interface LatencyHistogramMXBean {
+
+    long getCount();
+
+    long getMeanMicros();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getP999Micros();
+
+    long getMaxMicros();
+}
@@ -0,0 +1,111 @@
+package com.parkit.parkingsystem.metrics;
+
+import com.parkit.parkingsystem.constants.MetricsConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/*
+ * Process wide registry of the counters and latency histograms. Every metric is published
+ * through JMX under the com.parkit.parkingsystem domain when created, and all of them can be
+ * dumped as text.
+ */
+public class Metrics {
+
+    private static final Logger logger = LogManager.getLogger("Metrics");
+
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram != null) {
+            return histogram;
+        }
+        if (isFull()) {
+            // Still usable by the caller, only left out of the registry
+            return new LatencyHistogram(name);
+        }
+        return histograms.computeIfAbsent(name, key -> {
+            LatencyHistogram created = new LatencyHistogram(key);
+            register("Latency", key, created);
+            return created;
+        });
+    }
+
+    public static Counter counter(String name) {
+        Counter counter = counters.get(name);
+        if (counter != null) {
+            return counter;
+        }
+        if (isFull()) {
+            return new Counter(name);
+        }
+        return counters.computeIfAbsent(name, key -> {
+            Counter created = new Counter(key);
+            register("Counter", key, created);
+            return created;
+        });
+    }
+
+    private static boolean isFull() {
+        return histograms.size() + counters.size() >= MetricsConstants.MAX_METRICS;
+    }
+
+    private static void register(String type, String name, Object metric) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(MetricsConstants.JMX_DOMAIN + ":type=" + type
+                    + ",name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(metric, objectName);
+            }
+        } catch (JMException e) {
+            logger.error("Unable to publish metric {} through JMX", name, e);
+        }
+    }
+
+    /*
+     * One line per metric sorted by name, latencies in microseconds
+     */
+    public static String dump() {
+        Map<String, Object> sorted = new TreeMap<>();
+        sorted.putAll(counters);
+        sorted.putAll(histograms);
+        StringBuilder text = new StringBuilder();
+        for (Object metric : sorted.values()) {
+            text.append(metric).append('\n');
+        }
+        return text.toString();
+    }
+
+    /*
+     * Logs the dump every period until the returned scheduler is shut down
+     */
+    public static ScheduledExecutorService scheduleDump(long periodSeconds) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            if (logger.isInfoEnabled()) {
+                logger.info("Metrics\n{}", dump());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        return scheduler;
+    }
+}
@@ -0,0 +1,32 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Date;
+
+/*
+ * A vehicle showing up at an entry gate
+ */
+public class EntryRequest {
+    private final ParkingType parkingType;
+    private final String vehicleRegNumber;
+    private final Date inTime;
+
+    public EntryRequest(ParkingType parkingType, String vehicleRegNumber, Date inTime) {
+        this.parkingType = parkingType;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.inTime = inTime;
+    }
+
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public Date getInTime() {
+        return inTime;
+    }
+}
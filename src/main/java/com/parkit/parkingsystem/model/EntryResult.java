@@ -0,0 +1,28 @@
+package com.parkit.parkingsystem.model;
+
+public class EntryResult {
+
+    public enum Status {
+        PARKED,
+        NO_SPOT_AVAILABLE
+    }
+
+    private final Status status;
+    private final Ticket ticket;
+
+    public EntryResult(Status status, Ticket ticket) {
+        this.status = status;
+        this.ticket = ticket;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /*
+     * The saved ticket, null when no spot was available
+     */
+    public Ticket getTicket() {
+        return ticket;
+    }
+}
@@ -0,0 +1,28 @@
+package com.parkit.parkingsystem.model;
+
+public class ExitResult {
+
+    public enum Status {
+        CHECKED_OUT,
+        NO_TICKET
+    }
+
+    private final Status status;
+    private final Ticket ticket;
+
+    public ExitResult(Status status, Ticket ticket) {
+        this.status = status;
+        this.ticket = ticket;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /*
+     * The closed and priced ticket, null when the vehicle had no open ticket
+     */
+    public Ticket getTicket() {
+        return ticket;
+    }
+}
@@ -0,0 +1,51 @@
+package com.parkit.parkingsystem.model;
+
+/*
+ * Outcome of a ticket export
+ */
+public class ExportReport {
+
+    private long exportedCount;
+    private int fileCount;
+    private int lastExportedId;
+    private boolean completed;
+
+    public void addExported(int count, int lastId) {
+        exportedCount += count;
+        lastExportedId = lastId;
+    }
+
+    public void addFile() {
+        fileCount++;
+    }
+
+    public long getExportedCount() {
+        return exportedCount;
+    }
+
+    /*
+     * Day files written to during this export
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /*
+     * The next export resumes after this ticket
+     */
+    public int getLastExportedId() {
+        return lastExportedId;
+    }
+
+    public void setLastExportedId(int lastExportedId) {
+        this.lastExportedId = lastExportedId;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+}
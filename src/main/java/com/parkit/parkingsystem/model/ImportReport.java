@@ -0,0 +1,88 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Outcome of a bulk import. Only the first rejected rows are kept in detail, the rest are counted.
+ */
+public class ImportReport {
+
+    public static final int MAX_DETAILED_REJECTIONS = 100;
+
+    private long readCount;
+    private long importedCount;
+    private long rejectedCount;
+    private long lastCommittedLine;
+    private boolean completed;
+    private final List<Rejection> rejections = new ArrayList<>();
+
+    public static class Rejection {
+        private final long lineNumber;
+        private final String reason;
+
+        public Rejection(long lineNumber, String reason) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+
+    public void addRead() {
+        readCount++;
+    }
+
+    public void addRejected(long lineNumber, String reason) {
+        rejectedCount++;
+        if (rejections.size() < MAX_DETAILED_REJECTIONS) {
+            rejections.add(new Rejection(lineNumber, reason));
+        }
+    }
+
+    /*
+     * Rows up to lineNumber are in the database
+     */
+    public void committed(long lineNumber, int count) {
+        importedCount += count;
+        lastCommittedLine = lineNumber;
+    }
+
+    public long getReadCount() {
+        return readCount;
+    }
+
+    public long getImportedCount() {
+        return importedCount;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /*
+     * Line to give as start line to resume an import that did not complete
+     */
+    public long getLastCommittedLine() {
+        return lastCommittedLine;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public List<Rejection> getRejections() {
+        return Collections.unmodifiableList(rejections);
+    }
+}
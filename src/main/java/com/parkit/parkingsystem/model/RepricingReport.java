@@ -0,0 +1,92 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Outcome of a re-pricing run. Only the first mismatches are kept in detail, the rest are counted.
+ */
+public class RepricingReport {
+
+    public static final int MAX_DETAILED_MISMATCHES = 100;
+
+    private long scannedCount;
+    private long mismatchCount;
+    private long correctedCount;
+    private long differenceInCents;
+    private boolean completed;
+    private final List<Mismatch> mismatches = new ArrayList<>();
+
+    public static class Mismatch {
+        private final int ticketId;
+        private final double storedPrice;
+        private final double expectedPrice;
+
+        public Mismatch(int ticketId, double storedPrice, double expectedPrice) {
+            this.ticketId = ticketId;
+            this.storedPrice = storedPrice;
+            this.expectedPrice = expectedPrice;
+        }
+
+        public int getTicketId() {
+            return ticketId;
+        }
+
+        public double getStoredPrice() {
+            return storedPrice;
+        }
+
+        public double getExpectedPrice() {
+            return expectedPrice;
+        }
+    }
+
+    public void addScanned(int count) {
+        scannedCount += count;
+    }
+
+    public void addMismatch(int ticketId, double storedPrice, double expectedPrice,
+            long differenceInCents) {
+        mismatchCount++;
+        this.differenceInCents += differenceInCents;
+        if (mismatches.size() < MAX_DETAILED_MISMATCHES) {
+            mismatches.add(new Mismatch(ticketId, storedPrice, expectedPrice));
+        }
+    }
+
+    public void addCorrected(int count) {
+        correctedCount += count;
+    }
+
+    public long getScannedCount() {
+        return scannedCount;
+    }
+
+    public long getMismatchCount() {
+        return mismatchCount;
+    }
+
+    public long getCorrectedCount() {
+        return correctedCount;
+    }
+
+    /*
+     * Sum of expected minus stored prices over every mismatch, each rounded to the cent
+     */
+    public long getDifferenceInCents() {
+        return differenceInCents;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public List<Mismatch> getMismatches() {
+        return Collections.unmodifiableList(mismatches);
+    }
+}
@@ -0,0 +1,77 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/*
+ * A fixed number of closed tickets stored column by column. One chunk is filled again and again
+ * while streaming the ticket table, so memory does not grow with the number of rows.
+ */
+public class TicketChunk {
+    private final int[] ids;
+    private final byte[] parkingTypes;
+    private final long[] inTimes;
+    private final long[] outTimes;
+    private final boolean[] discounts;
+    private final double[] prices;
+    private int size;
+
+    public TicketChunk(int capacity) {
+        ids = new int[capacity];
+        parkingTypes = new byte[capacity];
+        inTimes = new long[capacity];
+        outTimes = new long[capacity];
+        discounts = new boolean[capacity];
+        prices = new double[capacity];
+    }
+
+    public void add(int id, ParkingType parkingType, long inTime, long outTime, boolean discount,
+            double price) {
+        ids[size] = id;
+        parkingTypes[size] = (byte) parkingType.ordinal();
+        inTimes[size] = inTime;
+        outTimes[size] = outTime;
+        discounts[size] = discount;
+        prices[size] = price;
+        size++;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public boolean isFull() {
+        return size == ids.length;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return ids.length;
+    }
+
+    public int[] getIds() {
+        return ids;
+    }
+
+    public byte[] getParkingTypes() {
+        return parkingTypes;
+    }
+
+    public long[] getInTimes() {
+        return inTimes;
+    }
+
+    public long[] getOutTimes() {
+        return outTimes;
+    }
+
+    public boolean[] getDiscounts() {
+        return discounts;
+    }
+
+    public double[] getPrices() {
+        return prices;
+    }
+}
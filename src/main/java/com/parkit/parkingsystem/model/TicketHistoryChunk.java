@@ -0,0 +1,95 @@
+package com.parkit.parkingsystem.model;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Arrays;
+
+/*
+ * A fixed number of closed tickets with every column of the ticket table, stored column by
+ * column. Filled again and again while exporting the history, like TicketChunk for re-pricing.
+ */
+public class TicketHistoryChunk {
+    private final int[] ids;
+    private final int[] parkingNumbers;
+    private final String[] vehicleRegNumbers;
+    private final byte[] parkingTypes;
+    private final long[] inTimes;
+    private final long[] outTimes;
+    private final boolean[] discounts;
+    private final double[] prices;
+    private int size;
+
+    public TicketHistoryChunk(int capacity) {
+        ids = new int[capacity];
+        parkingNumbers = new int[capacity];
+        vehicleRegNumbers = new String[capacity];
+        parkingTypes = new byte[capacity];
+        inTimes = new long[capacity];
+        outTimes = new long[capacity];
+        discounts = new boolean[capacity];
+        prices = new double[capacity];
+    }
+
+    public void add(int id, int parkingNumber, String vehicleRegNumber, ParkingType parkingType,
+            long inTime, long outTime, boolean discount, double price) {
+        ids[size] = id;
+        parkingNumbers[size] = parkingNumber;
+        vehicleRegNumbers[size] = vehicleRegNumber;
+        parkingTypes[size] = (byte) parkingType.ordinal();
+        inTimes[size] = inTime;
+        outTimes[size] = outTime;
+        discounts[size] = discount;
+        prices[size] = price;
+        size++;
+    }
+
+    public void clear() {
+        // Lets the plates of the previous rows be collected
+        Arrays.fill(vehicleRegNumbers, 0, size, null);
+        size = 0;
+    }
+
+    public boolean isFull() {
+        return size == ids.length;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return ids.length;
+    }
+
+    public int[] getIds() {
+        return ids;
+    }
+
+    public int[] getParkingNumbers() {
+        return parkingNumbers;
+    }
+
+    public String[] getVehicleRegNumbers() {
+        return vehicleRegNumbers;
+    }
+
+    public byte[] getParkingTypes() {
+        return parkingTypes;
+    }
+
+    public long[] getInTimes() {
+        return inTimes;
+    }
+
+    public long[] getOutTimes() {
+        return outTimes;
+    }
+
+    public boolean[] getDiscounts() {
+        return discounts;
+    }
+
+    public double[] getPrices() {
+        return prices;
+    }
+}
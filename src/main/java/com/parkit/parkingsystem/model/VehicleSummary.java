@@ -0,0 +1,41 @@
+package com.parkit.parkingsystem.model;
+
+import java.util.Date;
+
+/*
+ * Visits of one plate over every ticket of this garage, for loyalty pricing
+ */
+public class VehicleSummary {
+
+    private final String vehicleRegNumber;
+    private final int visitCount;
+    private final double totalSpent;
+    private final Date lastVisit;
+
+    public VehicleSummary(String vehicleRegNumber, int visitCount, double totalSpent,
+            Date lastVisit) {
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.visitCount = visitCount;
+        this.totalSpent = totalSpent;
+        this.lastVisit = lastVisit;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public int getVisitCount() {
+        return visitCount;
+    }
+
+    public double getTotalSpent() {
+        return totalSpent;
+    }
+
+    /*
+     * Latest entry or exit
+     */
+    public Date getLastVisit() {
+        return lastVisit;
+    }
+}
@@ -0,0 +1,317 @@
+package com.parkit.parkingsystem.server;
+
+import com.parkit.parkingsystem.constants.GarageConstants;
+import com.parkit.parkingsystem.constants.MetricsConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.ServerConstants;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.EntryRequest;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitRequest;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.GateService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/*
+ * HTTP front of the GateService for the gate hardware, on the JDK built-in server.
+ *
+ * POST /entry     type=CAR|BIKE, plate, optional time in epoch milliseconds
+ * POST /exit      plate, optional time in epoch milliseconds
+ * GET  /availability
+ * GET  /metrics   counters and latencies as text, one metric per line
+ *
+ * Parameters come from the query string or a form encoded body, answers are JSON. An optional
+ * gate parameter names the calling gate, latencies are then also kept for that gate. When serving
+ * several garages, a garage parameter tells which one the gate belongs to. Every request runs on
+ * its own virtual thread when the JDK has them, on a bounded pool otherwise.
+ */
+public class GateHttpServer {
+
+    private static final Logger logger = LogManager.getLogger("GateHttpServer");
+
+    private static final Pattern GATE_NAME =
+            Pattern.compile("[A-Za-z0-9_-]{1," + MetricsConstants.MAX_GATE_NAME_LENGTH + "}");
+
+    private final Map<String, GateService> gateServices;
+    private final Map<String, ParkingSpotDAO> parkingSpotDAOs;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public GateHttpServer(InetSocketAddress address, GateService gateService,
+            ParkingSpotDAO parkingSpotDAO) throws IOException {
+        this(address,
+                Collections.singletonMap(GarageConstants.DEFAULT_GARAGE_ID, gateService),
+                Collections.singletonMap(GarageConstants.DEFAULT_GARAGE_ID, parkingSpotDAO));
+    }
+
+    /*
+     * Serves several garages, both maps being keyed by garage id
+     */
+    public GateHttpServer(InetSocketAddress address, Map<String, GateService> gateServices,
+            Map<String, ParkingSpotDAO> parkingSpotDAOs) throws IOException {
+        this.gateServices = gateServices;
+        this.parkingSpotDAOs = parkingSpotDAOs;
+        server = HttpServer.create(address, 0);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/entry", handler("POST", "entry", this::entry));
+        server.createContext("/exit", handler("POST", "exit", this::exit));
+        server.createContext("/availability",
+                handler("GET", "availability", this::availability));
+        server.createContext("/metrics", handler("GET", "metrics", this::metrics));
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Gate server listening on port {}", getPort());
+    }
+
+    public void stop() {
+        server.stop(ServerConstants.STOP_DELAY_SECONDS);
+        executor.shutdown();
+        logger.info("Gate server stopped");
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /*
+     * One virtual thread per request on Java 21 and later, looked up by reflection as the code
+     * still compiles for Java 8
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            logger.info("Serving gate requests on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            logger.info("Virtual threads not available, serving gate requests on a pool of {}"
+                    + " threads", ServerConstants.FALLBACK_POOL_SIZE);
+            return Executors.newFixedThreadPool(ServerConstants.FALLBACK_POOL_SIZE);
+        }
+    }
+
+    private interface Endpoint {
+        Response handle(Map<String, String> parameters) throws Exception;
+    }
+
+    private static class Response {
+        private final int status;
+        private final String body;
+        private final String contentType;
+
+        private Response(int status, String body) {
+            this(status, body, "application/json; charset=utf-8");
+        }
+
+        private Response(int status, String body, String contentType) {
+            this.status = status;
+            this.body = body;
+            this.contentType = contentType;
+        }
+    }
+
+    private static HttpHandler handler(String method, String name, Endpoint endpoint) {
+        LatencyHistogram latency = Metrics.histogram("GateHttpServer." + name);
+        return exchange -> {
+            long startNanos = System.nanoTime();
+            String gate = null;
+            Response response;
+            try {
+                if (!method.equals(exchange.getRequestMethod())) {
+                    response = error(405, "Method not allowed");
+                } else {
+                    Map<String, String> parameters = readParameters(exchange);
+                    gate = parameters.get("gate");
+                    response = endpoint.handle(parameters);
+                }
+            } catch (IllegalArgumentException e) {
+                response = error(400, e.getMessage());
+            } catch (Exception e) {
+                logger.error("Error processing gate request {}", exchange.getRequestURI(), e);
+                response = error(500, "Unable to process request");
+            }
+            // Recorded before answering, so that a client sees its own call in the metrics
+            latency.recordSince(startNanos);
+            if (gate != null && GATE_NAME.matcher(gate).matches()) {
+                Metrics.histogram("GateHttpServer." + name + ".gate." + gate)
+                        .recordSince(startNanos);
+            }
+            send(exchange, response);
+        };
+    }
+
+    private Response entry(Map<String, String> parameters) throws Exception {
+        ParkingType parkingType = ParkingType.valueOf(required(parameters, "type"));
+        EntryResult result = garage(gateServices, parameters).enter(new EntryRequest(parkingType,
+                required(parameters, "plate"), time(parameters)));
+        if (result.getStatus() == EntryResult.Status.NO_SPOT_AVAILABLE) {
+            return new Response(409, "{\"status\":\"" + result.getStatus() + "\"}");
+        }
+        Ticket ticket = result.getTicket();
+        return new Response(201, "{\"status\":\"" + result.getStatus() + "\""
+                + ticketId(ticket)
+                + ",\"parkingNumber\":" + ticket.getParkingSpot().getId()
+                + ",\"plate\":" + quote(ticket.getVehicleRegNumber())
+                + ",\"discount\":" + ticket.getDiscount()
+                + ",\"inTime\":" + ticket.getInTime().getTime() + "}");
+    }
+
+    private Response exit(Map<String, String> parameters) throws Exception {
+        ExitResult result = garage(gateServices, parameters).exit(
+                new ExitRequest(required(parameters, "plate"), time(parameters)));
+        if (result.getStatus() == ExitResult.Status.NO_TICKET) {
+            return new Response(404, "{\"status\":\"" + result.getStatus() + "\"}");
+        }
+        Ticket ticket = result.getTicket();
+        return new Response(200, "{\"status\":\"" + result.getStatus() + "\""
+                + ticketId(ticket)
+                + ",\"parkingNumber\":" + ticket.getParkingSpot().getId()
+                + ",\"plate\":" + quote(ticket.getVehicleRegNumber())
+                + ",\"price\":" + ticket.getPrice()
+                + ",\"inTime\":" + ticket.getInTime().getTime()
+                + ",\"outTime\":" + ticket.getOutTime().getTime() + "}");
+    }
+
+    private Response availability(Map<String, String> parameters) {
+        ParkingSpotDAO parkingSpotDAO = garage(parkingSpotDAOs, parameters);
+        StringBuilder body = new StringBuilder("{");
+        for (ParkingType parkingType : ParkingType.values()) {
+            int nextParkingNumber = parkingSpotDAO.getNextAvailableSlot(parkingType);
+            if (body.length() > 1) {
+                body.append(',');
+            }
+            body.append('"').append(parkingType).append("\":{\"available\":")
+                    .append(nextParkingNumber > 0)
+                    .append(",\"nextParkingNumber\":").append(Math.max(nextParkingNumber, 0))
+                    .append(",\"free\":").append(parkingSpotDAO.getFreeSpotCount(parkingType))
+                    .append(",\"occupied\":")
+                    .append(parkingSpotDAO.getOccupiedSpotCount(parkingType))
+                    .append('}');
+        }
+        return new Response(200, body.append('}').toString());
+    }
+
+    private Response metrics(Map<String, String> parameters) {
+        return new Response(200, Metrics.dump(), "text/plain; charset=utf-8");
+    }
+
+    /*
+     * The garage parameter may be left out when serving a single garage
+     */
+    private static <T> T garage(Map<String, T> byGarage, Map<String, String> parameters) {
+        String garageId = parameters.get("garage");
+        if (garageId == null && byGarage.size() == 1) {
+            return byGarage.values().iterator().next();
+        }
+        T value = byGarage.get(required(parameters, "garage"));
+        if (value == null) {
+            throw new IllegalArgumentException("Unknown garage " + garageId);
+        }
+        return value;
+    }
+
+    private static String required(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter " + name);
+        }
+        return value.trim();
+    }
+
+    private static Date time(Map<String, String> parameters) {
+        String time = parameters.get("time");
+        return time == null ? new Date() : new Date(Long.parseLong(time));
+    }
+
+    private static Map<String, String> readParameters(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        parse(exchange.getRequestURI().getRawQuery(), parameters);
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+            parse(new String(body.toByteArray(), StandardCharsets.UTF_8), parameters);
+        }
+        return parameters;
+    }
+
+    private static void parse(String form, Map<String, String> parameters)
+            throws UnsupportedEncodingException {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+            }
+        }
+    }
+
+    private static Response error(int status, String message) {
+        return new Response(status, "{\"error\":" + quote(message) + "}");
+    }
+
+    /*
+     * The ticketId field, left out while the ticket is queued for write-behind and has no ID yet
+     */
+    private static String ticketId(Ticket ticket) {
+        return ticket.getId() == 0 ? "" : ",\"ticketId\":" + ticket.getId();
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", response.contentType);
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
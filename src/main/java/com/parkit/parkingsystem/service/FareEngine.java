@@ -0,0 +1,91 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+
+/*
+ * Pricing rules on primitive values: epoch milliseconds in, fixed-point amounts out. Nothing is
+ * allocated outside of the error path, so whole days of tickets can be priced in batch.
+ *
+ * Amounts are exact: a price is minutes x rate in cents per hour x percentage paid, which is a
+ * whole number of PRICE_SCALE units per currency unit.
+ */
+public class FareEngine {
+
+    public static final long PRICE_SCALE = 60 * 100 * 100;
+    public static final long FREE_MINUTES = 30;
+    public static final long DISCOUNT_PERCENT = 5;
+
+    private static final long MILLIS_PER_MINUTE = 60_000;
+    private static final long UNITS_PER_CENT = PRICE_SCALE / 100;
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    private final long[] ratePerHourInCents = new long[PARKING_TYPES.length];
+
+    public FareEngine() {
+        ratePerHourInCents[ParkingType.CAR.ordinal()] = Math.round(Fare.CAR_RATE_PER_HOUR * 100);
+        ratePerHourInCents[ParkingType.BIKE.ordinal()] = Math.round(Fare.BIKE_RATE_PER_HOUR * 100);
+    }
+
+    /*
+     * Billed minutes, each timestamp being truncated to the minute
+     */
+    public long durationInMinutes(long inMillis, long outMillis) {
+        if (outMillis < inMillis) {
+            throw new IllegalArgumentException("Out time provided is incorrect");
+        }
+        return outMillis / MILLIS_PER_MINUTE - inMillis / MILLIS_PER_MINUTE;
+    }
+
+    /*
+     * Price in PRICE_SCALE units: free under 30 minutes, 5% off for recurring users
+     */
+    public long exactPrice(ParkingType parkingType, long inMillis, long outMillis,
+            boolean discount) {
+        long duration = durationInMinutes(inMillis, outMillis);
+        if (duration < FREE_MINUTES) {
+            return 0;
+        }
+        return duration * ratePerHourInCents[parkingType.ordinal()]
+                * (discount ? 100 - DISCOUNT_PERCENT : 100);
+    }
+
+    public double price(ParkingType parkingType, long inMillis, long outMillis,
+            boolean discount) {
+        return (double) exactPrice(parkingType, inMillis, outMillis, discount) / PRICE_SCALE;
+    }
+
+    /*
+     * Price rounded half up to the cent
+     */
+    public long priceInCents(ParkingType parkingType, long inMillis, long outMillis,
+            boolean discount) {
+        return toCents(exactPrice(parkingType, inMillis, outMillis, discount));
+    }
+
+    public static long toCents(long exactPrice) {
+        return (exactPrice + UNITS_PER_CENT / 2) / UNITS_PER_CENT;
+    }
+
+    /*
+     * Prices tickets from..to-1 given as columns, parking types being given by ordinal
+     */
+    public void priceInCents(byte[] parkingTypes, long[] inMillis, long[] outMillis,
+            boolean[] discounts, long[] pricesInCents, int from, int to) {
+        for (int i = from; i < to; i++) {
+            pricesInCents[i] = priceInCents(PARKING_TYPES[parkingTypes[i]], inMillis[i],
+                    outMillis[i], discounts[i]);
+        }
+    }
+
+    /*
+     * Same as above with the exact prices, in PRICE_SCALE units
+     */
+    public void exactPrice(byte[] parkingTypes, long[] inMillis, long[] outMillis,
+            boolean[] discounts, long[] exactPrices, int from, int to) {
+        for (int i = from; i < to; i++) {
+            exactPrices[i] = exactPrice(PARKING_TYPES[parkingTypes[i]], inMillis[i], outMillis[i],
+                    discounts[i]);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.EntryRequest;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitRequest;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.RegistrationNumbers;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/*
+ * Vehicle entry and exit, with everything the gate knows given in the request. Nothing here reads
+ * from the console or keeps per-call state, so any number of gates can be served concurrently.
+ * Database failures are thrown, business outcomes are part of the result.
+ */
+public class GateService {
+
+    private static final Logger logger = LogManager.getLogger("GateService");
+
+    private static final LatencyHistogram enterLatency = Metrics.histogram("GateService.enter");
+    private static final LatencyHistogram exitLatency = Metrics.histogram("GateService.exit");
+    private static final Counter enterFailures = Metrics.counter("GateService.enter.failures");
+    private static final Counter exitFailures = Metrics.counter("GateService.exit.failures");
+
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+    private FareCalculatorService fareCalculatorService;
+    private UnitOfWork unitOfWork;
+
+    /*
+     * Each vehicle entry and exit runs as one unit of work: on one connection and in one
+     * transaction when the unit of work is bound to a database
+     */
+    public GateService(ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO,
+            FareCalculatorService fareCalculatorService, UnitOfWork unitOfWork) {
+        this.parkingSpotDAO = parkingSpotDAO;
+        this.ticketDAO = ticketDAO;
+        this.fareCalculatorService = fareCalculatorService;
+        this.unitOfWork = unitOfWork;
+    }
+
+    public EntryResult enter(EntryRequest request) throws Exception {
+        long startNanos = System.nanoTime();
+        try {
+            if (request.getParkingType() == null || request.getInTime() == null) {
+                throw new IllegalArgumentException("Vehicle type and in-time are required");
+            }
+            EntryRequest entry = new EntryRequest(request.getParkingType(),
+                    validRegNumber(request.getVehicleRegNumber()), request.getInTime());
+            Ticket ticket = unitOfWork.execute(() -> parkVehicle(entry));
+            if (ticket == null) {
+                return new EntryResult(EntryResult.Status.NO_SPOT_AVAILABLE, null);
+            }
+            return new EntryResult(EntryResult.Status.PARKED, ticket);
+        } catch (Exception e) {
+            enterFailures.increment();
+            throw e;
+        } finally {
+            enterLatency.recordSince(startNanos);
+        }
+    }
+
+    private Ticket parkVehicle(EntryRequest request) throws Exception {
+        ParkingSpot parkingSpot = reserveParkingSpot(request.getParkingType());
+        if (parkingSpot == null) {
+            return null;
+        }
+        try {
+            String vehicleRegNumber = request.getVehicleRegNumber();
+            boolean discount = ticketDAO.isRecurringUser(vehicleRegNumber);
+            Ticket ticket = new Ticket();
+            // ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+            ticket.setParkingSpot(parkingSpot);
+            ticket.setVehicleRegNumber(vehicleRegNumber);
+            ticket.setPrice(0);
+            ticket.setInTime(request.getInTime());
+            ticket.setOutTime(null);
+            ticket.setDiscount(discount);
+            if (!ticketDAO.saveTicket(ticket)) {
+                throw new SQLException("Unable to save ticket informations. Error occurred");
+            }
+            return ticket;
+        } catch (Exception e) {
+            releaseParkingSpot(parkingSpot);
+            throw e;
+        }
+    }
+
+    /*
+     * Lowest free spot of this type, left free for whoever enters first. Returns null when the
+     * parking is full.
+     */
+    public ParkingSpot findNextAvailableSpot(ParkingType parkingType) {
+        int parkingNumber = parkingSpotDAO.getNextAvailableSlot(parkingType);
+        if (parkingNumber <= 0) {
+            return null;
+        }
+        return new ParkingSpot(parkingNumber, parkingType, true);
+    }
+
+    /*
+     * Reserves the lowest free spot of this type, returns null when the parking is full
+     */
+    private ParkingSpot reserveParkingSpot(ParkingType parkingType) {
+        int parkingNumber = parkingSpotDAO.reserveNextAvailableSlot(parkingType);
+        if (parkingNumber <= 0) {
+            return null;
+        }
+        return new ParkingSpot(parkingNumber, parkingType, false);
+    }
+
+    /*
+     * Gives back a spot reserved for a vehicle whose entry could not be completed. Inside a
+     * transaction the rollback already does it, this only matters for auto-commit DAO calls.
+     */
+    private void releaseParkingSpot(ParkingSpot parkingSpot) {
+        parkingSpot.setAvailable(true);
+        if (!parkingSpotDAO.updateParking(parkingSpot)) {
+            logger.error("Unable to release parking spot {}", box(parkingSpot.getId()));
+        }
+    }
+
+    public ExitResult exit(ExitRequest request) throws Exception {
+        long startNanos = System.nanoTime();
+        try {
+            if (request.getOutTime() == null) {
+                throw new IllegalArgumentException("Out-time is required");
+            }
+            ExitRequest exit = new ExitRequest(validRegNumber(request.getVehicleRegNumber()),
+                    request.getOutTime());
+            Ticket ticket = unitOfWork.execute(() -> checkOutVehicle(exit));
+            if (ticket == null) {
+                return new ExitResult(ExitResult.Status.NO_TICKET, null);
+            }
+            return new ExitResult(ExitResult.Status.CHECKED_OUT, ticket);
+        } catch (Exception e) {
+            exitFailures.increment();
+            throw e;
+        } finally {
+            exitLatency.recordSince(startNanos);
+        }
+    }
+
+    /*
+     * Rejects a plate the ticket table could not hold before it reaches the caches or the SQL,
+     * and returns it in upper case so that a plate typed in lower case is still recognized
+     */
+    private static String validRegNumber(String vehicleRegNumber) {
+        if (vehicleRegNumber == null || vehicleRegNumber.isEmpty()
+                || vehicleRegNumber.length() > DBConstants.VEHICLE_REG_NUMBER_LENGTH) {
+            throw new IllegalArgumentException("Invalid registration number");
+        }
+        return RegistrationNumbers.normalize(vehicleRegNumber);
+    }
+
+    private Ticket checkOutVehicle(ExitRequest request) throws Exception {
+        Ticket ticket = ticketDAO.getTicket(request.getVehicleRegNumber());
+        if (ticket == null) {
+            return null;
+        }
+        ticket.setOutTime(request.getOutTime());
+        fareCalculatorService.calculateFare(ticket);
+        if (!ticketDAO.updateTicket(ticket)) {
+            logger.error("Unable to process exiting vehicle");
+            throw new SQLException("Unable to update ticket information. Error occurred");
+        }
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        parkingSpot.setAvailable(true);
+        if (!parkingSpotDAO.updateParking(parkingSpot)) {
+            logger.error("Unable to free parking spot {}", box(parkingSpot.getId()));
+            throw new SQLException("Unable to update parking information. Error occurred");
+        }
+        return ticket;
+    }
+}
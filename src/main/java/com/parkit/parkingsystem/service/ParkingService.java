@@ -1,75 +1,91 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.constants.ParkingType;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.EntryRequest;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitRequest;
+import com.parkit.parkingsystem.model.ExitResult;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.util.InputReaderUtil;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.SQLException;
 import java.util.Date;
 
+/*
+ * Console client of the GateService: reads the vehicle from the shell and prints the outcome
+ */
 public class ParkingService {
 
     private static final Logger logger = LogManager.getLogger("ParkingService");
 
+    private static final LatencyHistogram processIncomingVehicleLatency =
+            Metrics.histogram("ParkingService.processIncomingVehicle");
+    private static final LatencyHistogram processExitingVehicleLatency =
+            Metrics.histogram("ParkingService.processExitingVehicle");
+
     private InputReaderUtil inputReaderUtil;
-    private ParkingSpotDAO parkingSpotDAO;
-    private TicketDAO ticketDAO;
-    private FareCalculatorService fareCalculatorService;
+    private GateService gateService;
 
     public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO,
             TicketDAO ticketDAO, FareCalculatorService fareCalculatorService) {
+        this(inputReaderUtil, parkingSpotDAO, ticketDAO, fareCalculatorService, new UnitOfWork());
+    }
+
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO,
+            TicketDAO ticketDAO, FareCalculatorService fareCalculatorService,
+            UnitOfWork unitOfWork) {
+        this(inputReaderUtil,
+                new GateService(parkingSpotDAO, ticketDAO, fareCalculatorService, unitOfWork));
+    }
+
+    public ParkingService(InputReaderUtil inputReaderUtil, GateService gateService) {
         this.inputReaderUtil = inputReaderUtil;
-        this.parkingSpotDAO = parkingSpotDAO;
-        this.ticketDAO = ticketDAO;
-        this.fareCalculatorService = fareCalculatorService;
+        this.gateService = gateService;
     }
 
     public void processIncomingVehicle() throws Exception {
+        long startNanos = System.nanoTime();
         try {
-            ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
-            if (parkingSpot != null && parkingSpot.getId() > 0) {
-                String vehicleRegNumber = getVehichleRegNumber();
-                boolean discount = false;
-                if (ticketDAO.getNbTicket(vehicleRegNumber) > 0) {
-                    discount = true;
-                }
-                parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot);
-                Date inTime = new Date();
-                Ticket ticket = new Ticket();
-                // ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-                // ticket.setId(ticketID);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(0);
-                ticket.setInTime(inTime);
-                ticket.setOutTime(null);
-                ticket.setDiscount(discount);
-                if (ticketDAO.saveTicket(ticket)) {
-                    System.out.println("Generated Ticket and saved in DB");
-                    if (discount) {
-                        System.out.println(
-                                "Nice to see you again! As a recurrent user, you'll get a 5% discount on your parking fare");
-                    }
-                    System.out.println(
-                            "Please park your vehicle in spot number: " + parkingSpot.getId());
-                    System.out.println(
-                            "For vehicle number:" + vehicleRegNumber + ", in-time is: " + inTime);
-                } else {
-                    throw new SQLException("Unable to save ticket informations. Error occurred");
-                }
+            ParkingType parkingType;
+            try {
+                parkingType = getVehichleType();
+            } catch (IllegalArgumentException ie) {
+                logger.error("Error parsing user input for type of vehicle", ie);
+                return;
             }
+            String vehicleRegNumber = getVehichleRegNumber();
+            EntryResult result = gateService.enter(
+                    new EntryRequest(parkingType, vehicleRegNumber, new Date()));
+            if (result.getStatus() == EntryResult.Status.NO_SPOT_AVAILABLE) {
+                throw new Exception(
+                        "Error fetching parking number from DB. Parking slots might be full");
+            }
+            Ticket ticket = result.getTicket();
+            System.out.println("Generated Ticket and saved in DB");
+            if (ticket.getDiscount()) {
+                System.out.println(
+                        "Nice to see you again! As a recurrent user, you'll get a 5% discount on your parking fare");
+            }
+            System.out.println(
+                    "Please park your vehicle in spot number: " + ticket.getParkingSpot().getId());
+            System.out.println("For vehicle number:" + vehicleRegNumber + ", in-time is: "
+                    + ticket.getInTime());
         } catch (SQLException e) {
             logger.error("Unable to save ticket informations. Error occured", e);
             throw new SQLException();
         } catch (Exception e) {
             logger.error("Unable to process incoming vehicle", e);
             throw new Exception();
+        } finally {
+            processIncomingVehicleLatency.recordSince(startNanos);
         }
     }
 
@@ -78,15 +94,15 @@ public class ParkingService {
         return inputReaderUtil.readVehicleRegistrationNumber();
     }
 
+    /*
+     * Shows the next free spot without reserving it, the spot is only taken on entry
+     */
     public ParkingSpot getNextParkingNumberIfAvailable() throws Exception {
-        int parkingNumber = 0;
         ParkingSpot parkingSpot = null;
         try {
             ParkingType parkingType = getVehichleType();
-            parkingNumber = parkingSpotDAO.getNextAvailableSlot(parkingType);
-            if (parkingNumber > 0) {
-                parkingSpot = new ParkingSpot(parkingNumber, parkingType, true);
-            } else {
+            parkingSpot = gateService.findNextAvailableSpot(parkingType);
+            if (parkingSpot == null) {
                 throw new Exception(
                         "Error fetching parking number from DB. Parking slots might be full");
             }
@@ -116,25 +132,20 @@ public class ParkingService {
     }
 
     public void processExitingVehicle() throws Exception {
-        String vehicleRegNumber = getVehichleRegNumber();
-        Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
-        if (ticket == null) {
-            System.out.println("No ticket was found with this registration number");
-            return;
-        }
-        Date outTime = new Date();
-        ticket.setOutTime(outTime);
-        fareCalculatorService.calculateFare(ticket);
-        if (ticketDAO.updateTicket(ticket)) {
-            ParkingSpot parkingSpot = ticket.getParkingSpot();
-            parkingSpot.setAvailable(true);
-            parkingSpotDAO.updateParking(parkingSpot);
+        long startNanos = System.nanoTime();
+        try {
+            String vehicleRegNumber = getVehichleRegNumber();
+            ExitResult result = gateService.exit(new ExitRequest(vehicleRegNumber, new Date()));
+            if (result.getStatus() == ExitResult.Status.NO_TICKET) {
+                System.out.println("No ticket was found with this registration number");
+                return;
+            }
+            Ticket ticket = result.getTicket();
             System.out.println("Please pay the parking fare: " + ticket.getPrice());
             System.out.println("Recorded out-time for vehicle number: "
-                    + ticket.getVehicleRegNumber() + " is: " + outTime);
-        } else {
-            logger.error("Unable to process exiting vehicle");
-            throw new SQLException("Unable to update ticket information. Error occurred");
+                    + ticket.getVehicleRegNumber() + " is: " + ticket.getOutTime());
+        } finally {
+            processExitingVehicleLatency.recordSince(startNanos);
         }
     }
 }
@@ -0,0 +1,129 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.dao.TicketBatchDAO;
+import com.parkit.parkingsystem.model.RepricingReport;
+import com.parkit.parkingsystem.model.TicketChunk;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * Prices closed tickets again with the current rules and reports, and optionally corrects, the
+ * stored prices that differ. Tickets are streamed chunk by chunk, each chunk being priced in
+ * parallel and its corrections written in one batch and one transaction.
+ */
+public class RepricingService {
+
+    private static final Logger logger = LogManager.getLogger("RepricingService");
+
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+    private static final int PRICING_THRESHOLD = 1_024;
+    private static final double PRICE_TOLERANCE = 0.000_001;
+
+    public TicketBatchDAO ticketBatchDAO = new TicketBatchDAO();
+
+    private final FareEngine fareEngine = new FareEngine();
+    private final UnitOfWork unitOfWork;
+    private final ForkJoinPool forkJoinPool;
+    private final int chunkSize;
+
+    public RepricingService(UnitOfWork unitOfWork) {
+        this(unitOfWork, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public RepricingService(UnitOfWork unitOfWork, ForkJoinPool forkJoinPool, int chunkSize) {
+        this.unitOfWork = unitOfWork;
+        this.forkJoinPool = forkJoinPool;
+        this.chunkSize = chunkSize;
+    }
+
+    /*
+     * Goes over the tickets closed between from (included) and to (excluded). When correct is
+     * false nothing is written.
+     */
+    public RepricingReport reprice(Date from, Date to, boolean correct) {
+        RepricingReport report = new RepricingReport();
+        long[] exactPrices = new long[chunkSize];
+        int[] correctedIds = new int[chunkSize];
+        double[] correctedPrices = new double[chunkSize];
+        double[] storedPrices = new double[chunkSize];
+        boolean completed = ticketBatchDAO.forEachClosedTicketChunk(from, to,
+                new TicketChunk(chunkSize), chunk -> {
+                    try {
+                        forkJoinPool.invoke(
+                                new PricingTask(chunk, exactPrices, 0, chunk.getSize()));
+                    } catch (IllegalArgumentException e) {
+                        logger.error("Stopping re-pricing, a ticket could not be priced", e);
+                        return false;
+                    }
+                    int corrections = 0;
+                    for (int i = 0; i < chunk.getSize(); i++) {
+                        double storedPrice = chunk.getPrices()[i];
+                        double expectedPrice = (double) exactPrices[i] / FareEngine.PRICE_SCALE;
+                        if (Math.abs(storedPrice - expectedPrice) > PRICE_TOLERANCE) {
+                            report.addMismatch(chunk.getIds()[i], storedPrice, expectedPrice,
+                                    Math.round((expectedPrice - storedPrice) * 100));
+                            correctedIds[corrections] = chunk.getIds()[i];
+                            correctedPrices[corrections] = expectedPrice;
+                            storedPrices[corrections] = storedPrice;
+                            corrections++;
+                        }
+                    }
+                    report.addScanned(chunk.getSize());
+                    if (!correct || corrections == 0) {
+                        return true;
+                    }
+                    int count = corrections;
+                    try {
+                        unitOfWork.execute(() -> {
+                            if (!ticketBatchDAO.updatePrices(correctedIds, correctedPrices,
+                                    storedPrices, count)) {
+                                throw new SQLException("Unable to correct ticket prices");
+                            }
+                            return null;
+                        });
+                    } catch (Exception e) {
+                        logger.error("Stopping re-pricing, unable to write corrections", e);
+                        return false;
+                    }
+                    report.addCorrected(count);
+                    return true;
+                });
+        report.setCompleted(completed);
+        return report;
+    }
+
+    private class PricingTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final TicketChunk chunk;
+        private final long[] exactPrices;
+        private final int from;
+        private final int to;
+
+        private PricingTask(TicketChunk chunk, long[] exactPrices, int from, int to) {
+            this.chunk = chunk;
+            this.exactPrices = exactPrices;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PRICING_THRESHOLD) {
+                fareEngine.exactPrice(chunk.getParkingTypes(), chunk.getInTimes(),
+                        chunk.getOutTimes(), chunk.getDiscounts(), exactPrices, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PricingTask(chunk, exactPrices, from, middle),
+                    new PricingTask(chunk, exactPrices, middle, to));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ArchiveConstants;
+import com.parkit.parkingsystem.dao.TicketArchiveDAO;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/*
+ * Keeps the ticket table down to the open and recently closed tickets by moving older ones to
+ * the archive, one small transaction at a time with a pause in between, so that the gates never
+ * wait long on the rows being moved.
+ */
+public class TicketArchiveService {
+
+    private static final Logger logger = LogManager.getLogger("TicketArchiveService");
+
+    private static final LatencyHistogram batchLatency =
+            Metrics.histogram("TicketArchiveService.batch");
+
+    public TicketArchiveDAO ticketArchiveDAO = new TicketArchiveDAO();
+
+    private final UnitOfWork unitOfWork;
+    private final long archiveAfterMs;
+    private final int batchSize;
+    private final long batchPauseMs;
+    private ScheduledExecutorService scheduler;
+
+    public TicketArchiveService(UnitOfWork unitOfWork) {
+        this(unitOfWork, TimeUnit.DAYS.toMillis(ArchiveConstants.ARCHIVE_AFTER_DAYS),
+                ArchiveConstants.BATCH_SIZE, ArchiveConstants.BATCH_PAUSE_MS);
+    }
+
+    public TicketArchiveService(UnitOfWork unitOfWork, long archiveAfterMs, int batchSize,
+            long batchPauseMs) {
+        this.unitOfWork = unitOfWork;
+        this.archiveAfterMs = archiveAfterMs;
+        this.batchSize = batchSize;
+        this.batchPauseMs = batchPauseMs;
+    }
+
+    /*
+     * Archives every ticket closed more than archiveAfterMs ago, batch after batch. Returns the
+     * number of tickets archived, or -1 if a batch failed, the tickets of the previous batches
+     * then staying archived.
+     */
+    public long archive() {
+        Date closedBefore = new Date(System.currentTimeMillis() - archiveAfterMs);
+        long archived = 0;
+        while (true) {
+            long startNanos = System.nanoTime();
+            int count;
+            try {
+                count = unitOfWork.execute(() -> {
+                    int moved = ticketArchiveDAO.archiveClosedTickets(closedBefore, batchSize);
+                    if (moved < 0) {
+                        throw new SQLException("Unable to archive closed tickets");
+                    }
+                    return moved;
+                });
+            } catch (Exception e) {
+                logger.error("Stopping archival after {} tickets", box(archived), e);
+                return -1;
+            } finally {
+                batchLatency.recordSince(startNanos);
+            }
+            archived += count;
+            if (count < batchSize) {
+                break;
+            }
+            try {
+                Thread.sleep(batchPauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (archived > 0) {
+            logger.info("{} closed tickets archived", box(archived));
+        }
+        return archived;
+    }
+
+    /*
+     * Runs the archival now and then every intervalMinutes on a background thread
+     */
+    public synchronized void start(long intervalMinutes) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "ticket-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::archive, 0, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /*
+     * A batch being moved is rolled back if the process stops before it commits
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
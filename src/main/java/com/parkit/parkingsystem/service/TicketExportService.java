@@ -0,0 +1,125 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ExportConstants;
+import com.parkit.parkingsystem.dao.TicketBatchDAO;
+import com.parkit.parkingsystem.model.ExportReport;
+import com.parkit.parkingsystem.model.TicketHistoryChunk;
+import com.parkit.parkingsystem.util.TicketColumnFile;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * Exports the closed tickets to columnar files, one per day of exit, for analytics to read
+ * instead of querying the production database. Tickets are streamed chunk by chunk through a
+ * forward-only cursor, and the last exported ID is checkpointed after each chunk so that the next
+ * export only sends the tickets closed since.
+ */
+public class TicketExportService {
+
+    private static final Logger logger = LogManager.getLogger("TicketExportService");
+
+    public TicketBatchDAO ticketBatchDAO = new TicketBatchDAO();
+
+    private final Path directory;
+    private final int chunkSize;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    public TicketExportService(Path directory) {
+        this(directory, ExportConstants.CHUNK_SIZE);
+    }
+
+    public TicketExportService(Path directory, int chunkSize) {
+        this.directory = directory;
+        this.chunkSize = chunkSize;
+    }
+
+    public ExportReport export() {
+        ExportReport report = new ExportReport();
+        int checkpointId;
+        try {
+            Files.createDirectories(directory);
+            checkpointId = readCheckpoint();
+        } catch (IOException | NumberFormatException e) {
+            logger.error("Unable to read export checkpoint in {}", directory, e);
+            return report;
+        }
+        report.setLastExportedId(checkpointId);
+        // Day files written to by this export, cleaned of what a stopped export left first
+        Set<Path> openedFiles = new HashSet<>();
+        long[] keys = new long[chunkSize];
+        int[] rows = new int[chunkSize];
+        boolean completed = ticketBatchDAO.forEachTicketChunkToExport(checkpointId,
+                new TicketHistoryChunk(chunkSize), chunk -> {
+                    try {
+                        writeChunk(chunk, checkpointId, keys, rows, openedFiles, report);
+                        return true;
+                    } catch (IOException e) {
+                        logger.error("Error writing exported tickets to {}", directory, e);
+                        return false;
+                    }
+                });
+        report.setCompleted(completed);
+        return report;
+    }
+
+    private void writeChunk(TicketHistoryChunk chunk, int checkpointId, long[] keys, int[] rows,
+            Set<Path> openedFiles, ExportReport report) throws IOException {
+        int size = chunk.getSize();
+        // Day of exit in the high bits, row in the low bits: sorting groups rows by day and keeps
+        // the ID order within a day
+        for (int i = 0; i < size; i++) {
+            long day = Instant.ofEpochMilli(chunk.getOutTimes()[i]).atZone(zone).toLocalDate()
+                    .toEpochDay();
+            keys[i] = day << 32 | i;
+        }
+        Arrays.sort(keys, 0, size);
+        int start = 0;
+        while (start < size) {
+            long day = keys[start] >> 32;
+            int count = 0;
+            while (start + count < size && keys[start + count] >> 32 == day) {
+                rows[count] = (int) keys[start + count];
+                count++;
+            }
+            Path path = directory.resolve(ExportConstants.FILE_PREFIX + LocalDate.ofEpochDay(day)
+                    + ExportConstants.FILE_SUFFIX);
+            if (openedFiles.add(path)) {
+                TicketColumnFile.truncateAfter(path, checkpointId);
+                report.addFile();
+            }
+            TicketColumnFile.append(path, chunk, rows, count);
+            start += count;
+        }
+        int lastId = chunk.getIds()[size - 1];
+        writeCheckpoint(lastId);
+        report.addExported(size, lastId);
+    }
+
+    private int readCheckpoint() throws IOException {
+        Path checkpoint = directory.resolve(ExportConstants.CHECKPOINT_FILE);
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        return Integer.parseInt(
+                new String(Files.readAllBytes(checkpoint), StandardCharsets.US_ASCII).trim());
+    }
+
+    private void writeCheckpoint(int lastId) throws IOException {
+        Path temporary = directory.resolve(ExportConstants.CHECKPOINT_FILE + ".tmp");
+        Files.write(temporary, String.valueOf(lastId).getBytes(StandardCharsets.US_ASCII));
+        Files.move(temporary, directory.resolve(ExportConstants.CHECKPOINT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
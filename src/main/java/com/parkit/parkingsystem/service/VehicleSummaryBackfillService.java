@@ -0,0 +1,70 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.dao.VehicleSummaryDAO;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/*
+ * One-off job setting vehicle_summary from the tickets, for tickets written without it such as
+ * bulk imports, a batch of plates per transaction. Plates already summarized are set again from
+ * their tickets, so running it twice is harmless. It must run with the gates closed: a ticket
+ * written between the read and the write of its plate's batch would be lost from the summary.
+ */
+public class VehicleSummaryBackfillService {
+
+    private static final Logger logger = LogManager.getLogger("VehicleSummaryBackfillService");
+
+    public static final int DEFAULT_BATCH_SIZE = DBConstants.FETCH_SIZE;
+
+    public VehicleSummaryDAO vehicleSummaryDAO = new VehicleSummaryDAO();
+
+    private final UnitOfWork unitOfWork;
+    private final int batchSize;
+
+    public VehicleSummaryBackfillService(UnitOfWork unitOfWork) {
+        this(unitOfWork, DEFAULT_BATCH_SIZE);
+    }
+
+    public VehicleSummaryBackfillService(UnitOfWork unitOfWork, int batchSize) {
+        this.unitOfWork = unitOfWork;
+        this.batchSize = batchSize;
+    }
+
+    /*
+     * Returns the number of plates summarized, or -1 if a batch failed
+     */
+    public long backfill() {
+        String afterPlate = "";
+        long summarized = 0;
+        while (true) {
+            String from = afterPlate;
+            List<String> plates;
+            try {
+                plates = unitOfWork.execute(() -> {
+                    List<String> done = vehicleSummaryDAO.summarizePlates(from, batchSize);
+                    if (done == null) {
+                        throw new SQLException("Unable to summarize plates after " + from);
+                    }
+                    return done;
+                });
+            } catch (Exception e) {
+                logger.error("Stopping backfill after {} plates", box(summarized), e);
+                return -1;
+            }
+            summarized += plates.size();
+            if (plates.size() < batchSize) {
+                break;
+            }
+            afterPlate = plates.get(plates.size() - 1);
+        }
+        logger.info("{} plates summarized", box(summarized));
+        return summarized;
+    }
+}
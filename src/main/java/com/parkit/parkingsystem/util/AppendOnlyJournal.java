@@ -0,0 +1,208 @@
+package com.parkit.parkingsystem.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/*
+ * Local file of records appended one after the other through a memory mapping. A checkpoint
+ * tells which records were already applied, the ones after it are handed back when the journal
+ * is opened again after a crash. Once every record is applied the file is reused from the start,
+ * and when the file is full the records not applied yet are moved back to its start, so that a
+ * journal never fully drained under steady load does not fill up.
+ *
+ * Positions handed out keep growing across these moves: they are file offsets plus the bytes
+ * moved away since the journal was opened.
+ *
+ * Layout: header (magic, checkpoint), then records as length, CRC32 and payload, the last one
+ * being followed by a zero length. A record torn by a crash fails its CRC and ends the journal.
+ */
+public class AppendOnlyJournal implements Closeable {
+
+    private static final int MAGIC = 0x504B4A31;
+    private static final int CHECKPOINT_OFFSET = 8;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int TERMINATOR_SIZE = 4;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final boolean forceOnAppend;
+    private int writePosition;
+    private int checkpoint;
+    private long discarded;
+
+    public static class Entry {
+        private final byte[] payload;
+        private final long endPosition;
+
+        private Entry(byte[] payload, long endPosition) {
+            this.payload = payload;
+            this.endPosition = endPosition;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+
+        /*
+         * Position to checkpoint once this record and the ones before it are applied
+         */
+        public long getEndPosition() {
+            return endPosition;
+        }
+    }
+
+    /*
+     * Opens or creates the journal. With forceOnAppend each append is written to the disk before
+     * returning, otherwise the operating system writes it back on its own.
+     */
+    public AppendOnlyJournal(Path path, int capacity, boolean forceOnAppend) throws IOException {
+        if (capacity <= HEADER_SIZE + RECORD_HEADER_SIZE + TERMINATOR_SIZE) {
+            throw new IllegalArgumentException("Journal capacity too small");
+        }
+        this.forceOnAppend = forceOnAppend;
+        file = new RandomAccessFile(path.toFile(), "rw");
+        boolean created = file.length() < HEADER_SIZE;
+        int size = created ? capacity : (int) Math.max(capacity, file.length());
+        try {
+            buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        if (created || buffer.getInt(0) != MAGIC) {
+            buffer.putInt(HEADER_SIZE, 0);
+            buffer.putLong(CHECKPOINT_OFFSET, HEADER_SIZE);
+            buffer.putInt(0, MAGIC);
+            buffer.force();
+            checkpoint = HEADER_SIZE;
+            writePosition = HEADER_SIZE;
+        } else {
+            checkpoint = (int) buffer.getLong(CHECKPOINT_OFFSET);
+            writePosition = scan(checkpoint, null);
+            // Drops whatever a crash may have left half written after the last valid record
+            buffer.putInt(writePosition, 0);
+        }
+    }
+
+    /*
+     * Records appended and not checkpointed yet, in order
+     */
+    public synchronized List<Entry> readUnapplied() {
+        List<Entry> entries = new ArrayList<>();
+        scan(checkpoint, entries);
+        return entries;
+    }
+
+    /*
+     * Returns the end position of the record, or -1 when the journal has no room left for it
+     */
+    public synchronized long append(byte[] payload) {
+        int end = writePosition + RECORD_HEADER_SIZE + payload.length;
+        if (end + TERMINATOR_SIZE > buffer.capacity()) {
+            if (!compact()) {
+                return -1;
+            }
+            end = writePosition + RECORD_HEADER_SIZE + payload.length;
+            if (end + TERMINATOR_SIZE > buffer.capacity()) {
+                return -1;
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        buffer.putInt(end, 0);
+        buffer.position(writePosition + RECORD_HEADER_SIZE);
+        buffer.put(payload);
+        buffer.putInt(writePosition + 4, (int) crc.getValue());
+        buffer.putInt(writePosition, payload.length);
+        writePosition = end;
+        if (forceOnAppend) {
+            buffer.force();
+        }
+        return discarded + end;
+    }
+
+    /*
+     * Marks every record up to this end position as applied
+     */
+    public synchronized void checkpoint(long endPosition) {
+        checkpoint = (int) (endPosition - discarded);
+        if (checkpoint == writePosition) {
+            // Nothing left to apply, start again from the beginning of the file
+            buffer.putInt(HEADER_SIZE, 0);
+            discarded += checkpoint - HEADER_SIZE;
+            checkpoint = HEADER_SIZE;
+            writePosition = HEADER_SIZE;
+        }
+        buffer.putLong(CHECKPOINT_OFFSET, checkpoint);
+        if (forceOnAppend) {
+            buffer.force();
+        }
+    }
+
+    /*
+     * Moves the records not applied yet to the start of the file. Only done when they and their
+     * zero length fit before the checkpoint, so that a crash during the copy still finds them
+     * where the header says.
+     * Returns false when there was no room to gain.
+     */
+    private boolean compact() {
+        int unapplied = writePosition - checkpoint;
+        if (HEADER_SIZE + unapplied + TERMINATOR_SIZE > checkpoint) {
+            return false;
+        }
+        byte[] records = new byte[unapplied];
+        buffer.position(checkpoint);
+        buffer.get(records);
+        buffer.position(HEADER_SIZE);
+        buffer.put(records);
+        buffer.putInt(HEADER_SIZE + unapplied, 0);
+        buffer.force();
+        discarded += checkpoint - HEADER_SIZE;
+        checkpoint = HEADER_SIZE;
+        writePosition = HEADER_SIZE + unapplied;
+        buffer.putLong(CHECKPOINT_OFFSET, checkpoint);
+        buffer.force();
+        return true;
+    }
+
+    public synchronized boolean hasUnapplied() {
+        return checkpoint != writePosition;
+    }
+
+    private int scan(int position, List<Entry> entries) {
+        while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            int end = position + RECORD_HEADER_SIZE + length;
+            if (length <= 0 || end + TERMINATOR_SIZE > buffer.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.position(position + RECORD_HEADER_SIZE);
+            buffer.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            if (entries != null) {
+                entries.add(new Entry(payload, discarded + end));
+            }
+            position = end;
+        }
+        return position;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        file.close();
+    }
+}
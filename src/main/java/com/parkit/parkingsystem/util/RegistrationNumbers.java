@@ -0,0 +1,16 @@
+package com.parkit.parkingsystem.util;
+
+import java.util.Locale;
+
+/*
+ * Plates are compared in upper case, whatever case they were typed or stored in
+ */
+public final class RegistrationNumbers {
+
+    private RegistrationNumbers() {
+    }
+
+    public static String normalize(String vehicleRegNumber) {
+        return vehicleRegNumber == null ? null : vehicleRegNumber.toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,281 @@
+package com.parkit.parkingsystem.util;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.TicketHistoryChunk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/*
+ * Columnar file of exported tickets, made of blocks appended one after the other. Each block
+ * holds a few thousand tickets column by column: IDs and in times as deltas, plates run-length
+ * encoded, parking types as indexes in a dictionary of type names, out times as durations, all
+ * integers as varints.
+ *
+ * Block layout: magic, row count, first ID, last ID, body length, CRC32 of the body, then the
+ * body. A block torn by a crash fails its CRC and ends the file.
+ */
+public class TicketColumnFile {
+
+    private static final int MAGIC = 0x504B4331;
+    private static final int HEADER_SIZE = 24;
+
+    public interface BlockHandler {
+        void handle(TicketHistoryChunk block);
+    }
+
+    private TicketColumnFile() {
+    }
+
+    /*
+     * Appends the given rows of the chunk as one block and forces it to the disk. Rows must be in
+     * ID order.
+     */
+    public static void append(Path path, TicketHistoryChunk chunk, int[] rows, int count)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(count * 24);
+        DataOutputStream body = new DataOutputStream(bytes);
+        int previousId = 0;
+        for (int i = 0; i < count; i++) {
+            int id = chunk.getIds()[rows[i]];
+            writeVarLong(body, id - previousId);
+            previousId = id;
+        }
+        for (int i = 0; i < count; i++) {
+            writeVarLong(body, chunk.getParkingNumbers()[rows[i]]);
+        }
+        writePlates(body, chunk, rows, count);
+        ParkingType[] dictionary = ParkingType.values();
+        writeVarLong(body, dictionary.length);
+        for (ParkingType parkingType : dictionary) {
+            body.writeUTF(parkingType.name());
+        }
+        for (int i = 0; i < count; i++) {
+            body.writeByte(chunk.getParkingTypes()[rows[i]]);
+        }
+        long previousInTime = 0;
+        for (int i = 0; i < count; i++) {
+            long inTime = chunk.getInTimes()[rows[i]];
+            writeVarLong(body, zigZag(inTime - previousInTime));
+            previousInTime = inTime;
+        }
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            writeVarLong(body, zigZag(chunk.getOutTimes()[row] - chunk.getInTimes()[row]));
+        }
+        for (int i = 0; i < count; i += 8) {
+            int bits = 0;
+            for (int j = i; j < Math.min(i + 8, count); j++) {
+                if (chunk.getDiscounts()[rows[j]]) {
+                    bits |= 1 << (j - i);
+                }
+            }
+            body.writeByte(bits);
+        }
+        for (int i = 0; i < count; i++) {
+            body.writeDouble(chunk.getPrices()[rows[i]]);
+        }
+        body.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray(), 0, bytes.size());
+        try (FileOutputStream file = new FileOutputStream(path.toFile(), true)) {
+            DataOutputStream out = new DataOutputStream(file);
+            out.writeInt(MAGIC);
+            out.writeInt(count);
+            out.writeInt(chunk.getIds()[rows[0]]);
+            out.writeInt(chunk.getIds()[rows[count - 1]]);
+            out.writeInt(bytes.size());
+            out.writeInt((int) crc.getValue());
+            bytes.writeTo(out);
+            out.flush();
+            file.getChannel().force(true);
+        }
+    }
+
+    private static void writePlates(DataOutputStream body, TicketHistoryChunk chunk, int[] rows,
+            int count) throws IOException {
+        String[] plates = chunk.getVehicleRegNumbers();
+        int runCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || !plates[rows[i]].equals(plates[rows[i - 1]])) {
+                runCount++;
+            }
+        }
+        writeVarLong(body, runCount);
+        int runStart = 0;
+        for (int i = 1; i <= count; i++) {
+            if (i == count || !plates[rows[i]].equals(plates[rows[runStart]])) {
+                body.writeUTF(plates[rows[runStart]]);
+                writeVarLong(body, i - runStart);
+                runStart = i;
+            }
+        }
+    }
+
+    /*
+     * Hands every block of the file over in order, each one decoded in a new chunk
+     */
+    public static void read(Path path, BlockHandler handler) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            while (true) {
+                int magic;
+                try {
+                    magic = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (magic != MAGIC) {
+                    throw new IOException("Not a ticket block in " + path);
+                }
+                int count = in.readInt();
+                in.readInt();
+                in.readInt();
+                byte[] body = new byte[in.readInt()];
+                int expectedCrc = in.readInt();
+                in.readFully(body);
+                CRC32 crc = new CRC32();
+                crc.update(body, 0, body.length);
+                if ((int) crc.getValue() != expectedCrc) {
+                    throw new IOException("Corrupted ticket block in " + path);
+                }
+                handler.handle(decode(new DataInputStream(new ByteArrayInputStream(body)), count));
+            }
+        }
+    }
+
+    private static TicketHistoryChunk decode(DataInputStream body, int count) throws IOException {
+        int[] ids = new int[count];
+        int id = 0;
+        for (int i = 0; i < count; i++) {
+            id += (int) readVarLong(body);
+            ids[i] = id;
+        }
+        int[] parkingNumbers = new int[count];
+        for (int i = 0; i < count; i++) {
+            parkingNumbers[i] = (int) readVarLong(body);
+        }
+        String[] plates = new String[count];
+        int runCount = (int) readVarLong(body);
+        for (int run = 0, row = 0; run < runCount; run++) {
+            String plate = body.readUTF();
+            for (long length = readVarLong(body); length > 0; length--) {
+                plates[row++] = plate;
+            }
+        }
+        ParkingType[] dictionary = new ParkingType[(int) readVarLong(body)];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = ParkingType.valueOf(body.readUTF());
+        }
+        ParkingType[] parkingTypes = new ParkingType[count];
+        for (int i = 0; i < count; i++) {
+            parkingTypes[i] = dictionary[body.readUnsignedByte()];
+        }
+        long[] inTimes = new long[count];
+        long inTime = 0;
+        for (int i = 0; i < count; i++) {
+            inTime += unZigZag(readVarLong(body));
+            inTimes[i] = inTime;
+        }
+        long[] outTimes = new long[count];
+        for (int i = 0; i < count; i++) {
+            outTimes[i] = inTimes[i] + unZigZag(readVarLong(body));
+        }
+        boolean[] discounts = new boolean[count];
+        for (int i = 0; i < count; i += 8) {
+            int bits = body.readUnsignedByte();
+            for (int j = i; j < Math.min(i + 8, count); j++) {
+                discounts[j] = (bits & 1 << (j - i)) != 0;
+            }
+        }
+        TicketHistoryChunk block = new TicketHistoryChunk(count);
+        for (int i = 0; i < count; i++) {
+            block.add(ids[i], parkingNumbers[i], plates[i], parkingTypes[i], inTimes[i],
+                    outTimes[i], discounts[i], body.readDouble());
+        }
+        return block;
+    }
+
+    /*
+     * Cuts the file after the last whole block whose tickets are all up to lastId. Blocks written
+     * after the last checkpoint of an export that stopped, or torn by a crash, are dropped so that
+     * resuming the export does not write them twice.
+     */
+    public static void truncateAfter(Path path, int lastId) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            long length = file.length();
+            long position = 0;
+            while (position + HEADER_SIZE <= length) {
+                file.seek(position);
+                if (file.readInt() != MAGIC) {
+                    break;
+                }
+                file.readInt();
+                file.readInt();
+                int blockLastId = file.readInt();
+                int bodyLength = file.readInt();
+                int expectedCrc = file.readInt();
+                if (blockLastId > lastId || bodyLength < 0
+                        || position + HEADER_SIZE + bodyLength > length) {
+                    break;
+                }
+                byte[] body = new byte[bodyLength];
+                file.readFully(body);
+                CRC32 crc = new CRC32();
+                crc.update(body, 0, bodyLength);
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+                position += HEADER_SIZE + bodyLength;
+            }
+            if (position < length) {
+                file.setLength(position);
+                file.getChannel().force(true);
+            }
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
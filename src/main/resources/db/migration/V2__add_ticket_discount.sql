@@ -0,0 +1,2 @@
+/* DISCOUNT is written by SAVE_TICKET and read by GET_TICKET */
+alter table ticket add column DISCOUNT bool NOT NULL DEFAULT false;
@@ -0,0 +1,8 @@
+/* GET_NEXT_PARKING_SPOT: equality on TYPE and AVAILABLE, min(PARKING_NUMBER) read from the index */
+create index PARKING_TYPE_AVAILABLE_IDX on parking(TYPE, AVAILABLE, PARKING_NUMBER);
+
+/*
+ * GET_TICKET: equality on VEHICLE_REG_NUMBER and OUT_TIME, ordered by IN_TIME, other columns covered
+ * GET_NB_TICKET, HAS_TICKET, GET_KNOWN_PLATES: VEHICLE_REG_NUMBER prefix
+ */
+create index TICKET_PLATE_OPEN_IDX on ticket(VEHICLE_REG_NUMBER, OUT_TIME, IN_TIME, PARKING_NUMBER, PRICE, DISCOUNT);
@@ -0,0 +1,5 @@
+/*
+ * GET_FIRST_OPEN_TICKET_ID: equality on OUT_TIME null, min(ID) read from the index
+ * GET_CLOSED_TICKETS: range on OUT_TIME
+ */
+create index TICKET_OUT_TIME_IDX on ticket(OUT_TIME, ID);
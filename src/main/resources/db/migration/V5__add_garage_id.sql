@@ -0,0 +1,6 @@
+/*
+ * Garage of every spot and ticket. Each garage has its own database, rows written without a
+ * garage take the one of the database, given as the garageId placeholder when migrating.
+ */
+alter table parking add column GARAGE_ID varchar(32) NOT NULL DEFAULT '${garageId}';
+alter table ticket add column GARAGE_ID varchar(32) NOT NULL DEFAULT '${garageId}';
@@ -0,0 +1,15 @@
+/*
+ * Closed tickets moved out of ticket by TicketArchiveDAO, keeping their ID. Re-pricing reads them
+ * by OUT_TIME, the export by ID.
+ */
+create table ticket_archive(
+ ID int PRIMARY KEY,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL,
+ DISCOUNT bool NOT NULL,
+ GARAGE_ID varchar(32) NOT NULL);
+
+create index TICKET_ARCHIVE_OUT_TIME_IDX on ticket_archive(OUT_TIME, ID);
@@ -0,0 +1,23 @@
+/*
+ * Visits of each plate over the live and archived tickets, upserted along with every ticket
+ * written. GET_NB_TICKET, HAS_TICKET, GET_KNOWN_PLATES and GET_VEHICLE_SUMMARY read it by
+ * primary key.
+ */
+create table vehicle_summary(
+ VEHICLE_REG_NUMBER varchar(10) PRIMARY KEY,
+ NB_VISIT int NOT NULL,
+ TOTAL_SPENT double NOT NULL,
+ LAST_VISIT DATETIME NOT NULL);
+
+/* The backfill goes over the archived tickets plate by plate */
+create index TICKET_ARCHIVE_PLATE_IDX on ticket_archive(VEHICLE_REG_NUMBER);
+
+/*
+ * Summary of the tickets written so far, so that returning plates keep their discount from the
+ * first start after the upgrade.
+ */
+insert into vehicle_summary(VEHICLE_REG_NUMBER, NB_VISIT, TOTAL_SPENT, LAST_VISIT)
+select VEHICLE_REG_NUMBER, count(*), sum(coalesce(PRICE, 0)), max(coalesce(OUT_TIME, IN_TIME))
+from (select VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket
+ union all select VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME from ticket_archive) t
+group by VEHICLE_REG_NUMBER;
@@ -0,0 +1,140 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.util.AppendOnlyJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AppendOnlyJournalTest {
+
+    private static final int CAPACITY = 1024;
+
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws Exception {
+        directory = Files.createTempDirectory("journal");
+    }
+
+    @AfterEach
+    void deleteJournals() throws Exception {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    void readUnapplied_afterReopening_returnsRecordsAfterCheckpoint() throws Exception {
+        Path path = directory.resolve("journal.dat");
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(path, CAPACITY, false)) {
+            long first = journal.append(bytes("first"));
+            journal.append(bytes("second"));
+            journal.append(bytes("third"));
+            journal.checkpoint(first);
+        }
+
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(path, CAPACITY, false)) {
+            List<AppendOnlyJournal.Entry> entries = journal.readUnapplied();
+
+            assertEquals(2, entries.size());
+            assertEquals("second", text(entries.get(0)));
+            assertEquals("third", text(entries.get(1)));
+        }
+    }
+
+    @Test
+    void checkpoint_ofLastRecord_reusesTheFileFromTheStart() throws Exception {
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(
+                directory.resolve("journal.dat"), CAPACITY, true)) {
+            for (int i = 0; i < 100; i++) {
+                long end = journal.append(bytes("record number " + i));
+                assertTrue(end > 0);
+                journal.checkpoint(end);
+            }
+
+            assertFalse(journal.hasUnapplied());
+            assertTrue(journal.readUnapplied().isEmpty());
+        }
+    }
+
+    @Test
+    void append_neverFullyCheckpointed_movesUnappliedRecordsBack() throws Exception {
+        Path path = directory.resolve("journal.dat");
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(path, CAPACITY, true)) {
+            long previous = journal.append(bytes("record number 0"));
+            for (int i = 1; i < 200; i++) {
+                // The writer is always one record behind
+                long end = journal.append(bytes("record number " + i));
+                assertTrue(end > previous);
+                journal.checkpoint(previous);
+                previous = end;
+            }
+            assertTrue(journal.hasUnapplied());
+        }
+
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(path, CAPACITY, false)) {
+            List<AppendOnlyJournal.Entry> entries = journal.readUnapplied();
+
+            assertEquals(1, entries.size());
+            assertEquals("record number 199", text(entries.get(0)));
+        }
+    }
+
+    @Test
+    void append_whenFull_returnsMinusOne() throws Exception {
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(
+                directory.resolve("journal.dat"), CAPACITY, false)) {
+            int appended = 0;
+            while (journal.append(new byte[100]) > 0) {
+                appended++;
+            }
+
+            // 16 bytes of header, then 108 bytes per record and the final zero length
+            assertEquals(9, appended);
+            assertEquals(9, journal.readUnapplied().size());
+        }
+    }
+
+    @Test
+    void readUnapplied_withTornLastRecord_stopsBeforeIt() throws Exception {
+        Path path = directory.resolve("journal.dat");
+        long second;
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(path, CAPACITY, false)) {
+            journal.append(bytes("first"));
+            second = journal.append(bytes("second"));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(second - 1);
+            file.write('X');
+        }
+
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(path, CAPACITY, false)) {
+            List<AppendOnlyJournal.Entry> entries = journal.readUnapplied();
+
+            assertEquals(1, entries.size());
+            assertEquals("first", text(entries.get(0)));
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(AppendOnlyJournal.Entry entry) {
+        return new String(entry.getPayload(), StandardCharsets.UTF_8);
+    }
+}
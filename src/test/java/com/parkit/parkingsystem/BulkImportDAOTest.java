@@ -0,0 +1,134 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.BulkImportDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ImportReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BulkImportDAOTest {
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private BulkImportDAO bulkImportDAO;
+    private final List<Long> committedLines = new ArrayList<>();
+
+    @BeforeEach
+    void setUpPerTest() {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("bulkimport");
+        dataBaseConfig.createSchema();
+        // Small batches and commits so that a few rows go through several of them
+        bulkImportDAO = new BulkImportDAO(2, 4);
+        bulkImportDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @Test
+    void importParkingSpots_withInvalidRows_importsValidRowsInChunks() throws Exception {
+        StringBuilder csv = new StringBuilder("PARKING_NUMBER,TYPE,AVAILABLE\n");
+        for (int i = 1; i <= 10; i++) {
+            csv.append(i).append(',').append(i % 2 == 0 ? "car" : "BIKE").append('\n');
+        }
+        csv.append("11,TRUCK\n");
+        csv.append("\n");
+        csv.append("twelve,CAR\n");
+        csv.append("13,CAR,false\n");
+
+        ImportReport report = bulkImportDAO.importParkingSpots(new StringReader(csv.toString()), 0,
+                progress -> committedLines.add(progress.getLastCommittedLine()));
+
+        assertTrue(report.isCompleted());
+        assertEquals(13, report.getReadCount());
+        assertEquals(11, report.getImportedCount());
+        assertEquals(2, report.getRejectedCount());
+        assertEquals(12, report.getRejections().get(0).getLineNumber());
+        assertEquals(14, report.getRejections().get(1).getLineNumber());
+        assertEquals(15, report.getLastCommittedLine());
+        // Two full commits of four rows, then the rest at the end
+        assertEquals(3, committedLines.size());
+        assertEquals(5, (long) committedLines.get(0));
+        assertEquals(5, count("select count(*) from parking where TYPE = 'CAR' and AVAILABLE = true"));
+        assertEquals(1, count("select count(*) from parking where AVAILABLE = false"));
+    }
+
+    @Test
+    void importTickets_fromStartLine_skipsLinesAlreadyImported() throws Exception {
+        dataBaseConfig.addParkingSpots(ParkingType.CAR, 1, 2);
+        String csv = "PARKING_NUMBER,VEHICLE_REG_NUMBER,PRICE,IN_TIME,OUT_TIME,DISCOUNT\n"
+                + "1,AAA,1.5,2024-01-01 10:00:00,2024-01-01 11:00:00,false\n"
+                + "2,BBB,1.425,2024-01-01 10:00:00,2024-01-01 11:00:00,true\n"
+                + "1,\"C,C\",,2024-01-02 10:00:00,,\n"
+                + "2,DDD,0,2024-01-02 10:00:00,2024-01-01 10:00:00,false\n"
+                + "2,EEE,0,yesterday,,false\n";
+
+        ImportReport report = bulkImportDAO.importTickets(new StringReader(csv), 2,
+                progress -> committedLines.add(progress.getLastCommittedLine()));
+
+        assertTrue(report.isCompleted());
+        assertEquals(4, report.getReadCount());
+        assertEquals(2, report.getImportedCount());
+        assertEquals(2, report.getRejectedCount());
+        assertEquals(0, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'AAA'"));
+        assertEquals(1, count("select count(*) from ticket where DISCOUNT = true"));
+        assertEquals(1, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'C,C'"
+                + " and OUT_TIME is null"));
+    }
+
+    @Test
+    void importTickets_unknownParkingSpot_stopsAtLastCommit() throws Exception {
+        dataBaseConfig.addParkingSpots(ParkingType.CAR, 1, 1);
+        StringBuilder csv = new StringBuilder(
+                "PARKING_NUMBER,VEHICLE_REG_NUMBER,PRICE,IN_TIME,OUT_TIME,DISCOUNT\n");
+        for (int i = 0; i < 6; i++) {
+            csv.append(i < 5 ? 1 : 99).append(",PLATE").append(i)
+                    .append(",0,2024-01-01 10:00:00,,false\n");
+        }
+
+        ImportReport report = bulkImportDAO.importTickets(new StringReader(csv.toString()), 0,
+                progress -> committedLines.add(progress.getLastCommittedLine()));
+
+        assertFalse(report.isCompleted());
+        assertEquals(4, report.getImportedCount());
+        assertEquals(5, report.getLastCommittedLine());
+        assertEquals(4, count("select count(*) from ticket"));
+        assertEquals(4, count("select count(*) from vehicle_summary"));
+    }
+
+    @Test
+    void importTickets_samePlateTwice_addsBothVisitsToVehicleSummary() throws Exception {
+        dataBaseConfig.addParkingSpots(ParkingType.CAR, 1, 2);
+        String csv = "PARKING_NUMBER,VEHICLE_REG_NUMBER,PRICE,IN_TIME,OUT_TIME,DISCOUNT\n"
+                + "1,aaa,1.5,2024-01-01 10:00:00,2024-01-01 11:00:00,false\n"
+                + "2,AAA,,2024-01-02 10:00:00,,true\n"
+                + "2,BBB,3,2024-01-01 10:00:00,2024-01-01 12:00:00,false\n";
+
+        ImportReport report = bulkImportDAO.importTickets(new StringReader(csv), 0,
+                progress -> committedLines.add(progress.getLastCommittedLine()));
+
+        assertTrue(report.isCompleted());
+        assertEquals(1, count("select count(*) from vehicle_summary where VEHICLE_REG_NUMBER = 'AAA'"
+                + " and NB_VISIT = 2 and TOTAL_SPENT = 1.5"
+                + " and LAST_VISIT = timestamp '2024-01-02 10:00:00'"));
+        assertEquals(1, count("select count(*) from vehicle_summary where VEHICLE_REG_NUMBER = 'BBB'"
+                + " and NB_VISIT = 1 and TOTAL_SPENT = 3"));
+    }
+
+    private long count(String sql) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
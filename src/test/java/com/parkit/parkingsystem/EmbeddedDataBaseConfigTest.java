@@ -0,0 +1,85 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.BulkImportDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.EntryRequest;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EmbeddedDataBaseConfigTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void setUpPerTest() throws IOException {
+        directory = Files.createTempDirectory("embedded");
+    }
+
+    @AfterEach
+    void tearDownPerTest() throws IOException {
+        DataBaseConfig.shutdown();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    void migrate_newLocation_createsDatabaseFile() {
+        new EmbeddedDataBaseConfig(directory.resolve("parking").toString()).migrate();
+
+        assertTrue(Files.exists(directory.resolve("parking.mv.db")));
+    }
+
+    @Test
+    void enter_thenRestart_ticketAndSpotKept() throws Exception {
+        String location = directory.resolve("parking").toString();
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig(location);
+        dataBaseConfig.migrate();
+        BulkImportDAO bulkImportDAO = new BulkImportDAO();
+        bulkImportDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(bulkImportDAO.importParkingSpots(
+                new StringReader("PARKING_NUMBER,TYPE\n1,CAR\n"), 0, progress -> { })
+                .isCompleted());
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.loadAvailableSpots();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        GateService gateService = new GateService(parkingSpotDAO, ticketDAO,
+                new FareCalculatorService(), new UnitOfWork(dataBaseConfig));
+
+        EntryResult result = gateService.enter(
+                new EntryRequest(ParkingType.CAR, "ABCDEF", new Date()));
+        // Closes the database, as when the app stops
+        DataBaseConfig.shutdown();
+        TicketDAO reopened = new TicketDAO();
+        reopened.dataBaseConfig = new EmbeddedDataBaseConfig(location);
+        ParkingSpotDAO reopenedSpots = new ParkingSpotDAO();
+        reopenedSpots.dataBaseConfig = reopened.dataBaseConfig;
+
+        assertEquals(EntryResult.Status.PARKED, result.getStatus());
+        assertNotNull(reopened.getTicket("ABCDEF"));
+        assertEquals(0, reopenedSpots.getFreeSpotCount(ParkingType.CAR));
+    }
+}
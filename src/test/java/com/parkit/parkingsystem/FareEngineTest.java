@@ -0,0 +1,69 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.FareEngine;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FareEngineTest {
+
+    private static final long MINUTE = 60 * 1000;
+    private static final long IN_TIME = 1_700_000_000_123L;
+
+    private final FareEngine fareEngine = new FareEngine();
+
+    @Test
+    void price_forEveryDurationOfTwoDays_matchesDoubleFormula() {
+        for (ParkingType parkingType : ParkingType.values()) {
+            double rate = parkingType == ParkingType.CAR
+                    ? Fare.CAR_RATE_PER_HOUR : Fare.BIKE_RATE_PER_HOUR;
+            for (long minutes = 0; minutes <= 2 * 24 * 60; minutes++) {
+                double expected = minutes < 30 ? 0 : minutes / 60.0 * rate;
+                long outTime = IN_TIME + minutes * MINUTE;
+                assertEquals(expected, fareEngine.price(parkingType, IN_TIME, outTime, false), 1e-9);
+                assertEquals(expected * 0.95,
+                        fareEngine.price(parkingType, IN_TIME, outTime, true), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void priceInCents_withDiscount_roundsHalfUp() {
+        // 30 minutes of bike with discount is 0.475
+        assertEquals(48, fareEngine.priceInCents(ParkingType.BIKE, IN_TIME, IN_TIME + 30 * MINUTE, true));
+        // 31 minutes of car is 0.775
+        assertEquals(78, fareEngine.priceInCents(ParkingType.CAR, IN_TIME, IN_TIME + 31 * MINUTE, false));
+        assertEquals(0, fareEngine.priceInCents(ParkingType.CAR, IN_TIME, IN_TIME + 29 * MINUTE, true));
+    }
+
+    @Test
+    void durationInMinutes_truncatesEachTimestampToTheMinute() {
+        long inTime = 59 * 1000;
+        assertEquals(1, fareEngine.durationInMinutes(inTime, inTime + 2 * 1000));
+        assertEquals(0, fareEngine.durationInMinutes(0, 59 * 1000));
+    }
+
+    @Test
+    void exactPrice_whenOutTimeBeforeInTime_throwsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> fareEngine.exactPrice(ParkingType.CAR, IN_TIME, IN_TIME - 1, false));
+    }
+
+    @Test
+    void priceInCents_forColumns_pricesEveryTicketInRange() {
+        byte[] parkingTypes = {(byte) ParkingType.CAR.ordinal(), (byte) ParkingType.BIKE.ordinal(),
+                (byte) ParkingType.CAR.ordinal()};
+        long[] inTimes = {IN_TIME, IN_TIME, IN_TIME};
+        long[] outTimes = {IN_TIME + 60 * MINUTE, IN_TIME + 60 * MINUTE, IN_TIME + 10 * MINUTE};
+        boolean[] discounts = {false, true, false};
+        long[] prices = new long[3];
+
+        fareEngine.priceInCents(parkingTypes, inTimes, outTimes, discounts, prices, 0, 3);
+
+        assertArrayEquals(new long[] {150, 95, 0}, prices);
+    }
+}
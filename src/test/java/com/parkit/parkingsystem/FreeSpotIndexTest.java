@@ -0,0 +1,80 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.FreeSpotIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FreeSpotIndexTest {
+
+    private FreeSpotIndex freeSpotIndex;
+
+    @BeforeEach
+    void setUpPerTest() {
+        freeSpotIndex = new FreeSpotIndex();
+        Map<ParkingType, List<Integer>> availableSpots = new EnumMap<>(ParkingType.class);
+        availableSpots.put(ParkingType.CAR, Arrays.asList(3, 1, 2));
+        availableSpots.put(ParkingType.BIKE, Arrays.asList(5, 4));
+        freeSpotIndex.load(availableSpots);
+    }
+
+    @Test
+    void getLowestAvailable_afterLoad_returnsLowestNumberOfType() {
+        assertTrue(freeSpotIndex.isLoaded());
+        assertEquals(1, freeSpotIndex.getLowestAvailable(ParkingType.CAR));
+        assertEquals(4, freeSpotIndex.getLowestAvailable(ParkingType.BIKE));
+    }
+
+    @Test
+    void setAvailable_whenSpotTakenThenFreed_updatesLowestAvailable() {
+        freeSpotIndex.setAvailable(ParkingType.CAR, 1, false);
+        assertEquals(2, freeSpotIndex.getLowestAvailable(ParkingType.CAR));
+        assertFalse(freeSpotIndex.isAvailable(ParkingType.CAR, 1));
+
+        freeSpotIndex.setAvailable(ParkingType.CAR, 1, true);
+        assertEquals(1, freeSpotIndex.getLowestAvailable(ParkingType.CAR));
+    }
+
+    @Test
+    void getLowestAvailable_whenEverySpotTaken_returnsZero() {
+        freeSpotIndex.setAvailable(ParkingType.BIKE, 4, false);
+        freeSpotIndex.setAvailable(ParkingType.BIKE, 5, false);
+
+        assertEquals(0, freeSpotIndex.getLowestAvailable(ParkingType.BIKE));
+    }
+
+    @Test
+    void counts_whenSpotsClaimedAndFreed_followTheIndex() {
+        Map<ParkingType, Integer> spotCounts = new EnumMap<>(ParkingType.class);
+        spotCounts.put(ParkingType.CAR, 5);
+        spotCounts.put(ParkingType.BIKE, 2);
+        Map<ParkingType, List<Integer>> availableSpots = new EnumMap<>(ParkingType.class);
+        availableSpots.put(ParkingType.CAR, Arrays.asList(3, 1, 2));
+        freeSpotIndex.load(availableSpots, spotCounts);
+
+        assertEquals(3, freeSpotIndex.getAvailableCount(ParkingType.CAR));
+        assertEquals(2, freeSpotIndex.getOccupiedCount(ParkingType.CAR));
+        assertEquals(0, freeSpotIndex.getAvailableCount(ParkingType.BIKE));
+        assertEquals(2, freeSpotIndex.getOccupiedCount(ParkingType.BIKE));
+
+        freeSpotIndex.claimLowestAvailable(ParkingType.CAR);
+        freeSpotIndex.setAvailable(ParkingType.CAR, 2, false);
+        // Already taken, must not be counted twice
+        freeSpotIndex.setAvailable(ParkingType.CAR, 2, false);
+        freeSpotIndex.setAvailable(ParkingType.BIKE, 4, true);
+
+        assertEquals(1, freeSpotIndex.getAvailableCount(ParkingType.CAR));
+        assertEquals(4, freeSpotIndex.getOccupiedCount(ParkingType.CAR));
+        assertEquals(1, freeSpotIndex.getAvailableCount(ParkingType.BIKE));
+        assertEquals(1, freeSpotIndex.getOccupiedCount(ParkingType.BIKE));
+    }
+}
@@ -0,0 +1,120 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.GarageRouter;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.EntryRequest;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GarageRouterTest {
+
+    private EmbeddedDataBaseTestConfig north;
+    private EmbeddedDataBaseTestConfig south;
+    private GarageRouter garageRouter;
+
+    @BeforeEach
+    void setUpPerTest() throws Exception {
+        north = new EmbeddedDataBaseTestConfig("garage-north", "north");
+        south = new EmbeddedDataBaseTestConfig("garage-south", "south");
+        for (EmbeddedDataBaseTestConfig garage : Arrays.asList(north, south)) {
+            garage.createSchema();
+            garage.addParkingSpots(ParkingType.CAR, 1, 2);
+        }
+        garageRouter = new GarageRouter(Arrays.asList(north, south));
+        garageRouter.migrateAndLoad();
+    }
+
+    @AfterEach
+    void tearDownPerTest() {
+        garageRouter.shutdown();
+    }
+
+    @Test
+    void enter_inOneGarage_writesOnlyToItsDatabase() throws Exception {
+        EntryResult result = gateService("north")
+                .enter(new EntryRequest(ParkingType.CAR, "ABCDEF", new Date()));
+
+        assertEquals(EntryResult.Status.PARKED, result.getStatus());
+        assertEquals("north", queryString(north, "select GARAGE_ID from ticket"));
+        assertEquals("north", queryString(north,
+                "select GARAGE_ID from parking where PARKING_NUMBER = 1"));
+        assertEquals(null, queryString(south, "select GARAGE_ID from ticket"));
+        assertEquals(2, garageRouter.getParkingSpotDAO("south").getFreeSpotCount(ParkingType.CAR));
+    }
+
+    @Test
+    void enter_plateKnownInAnotherGarage_getsDiscount() throws Exception {
+        gateService("north").enter(new EntryRequest(ParkingType.CAR, "ABCDEF", new Date()));
+
+        EntryResult known = gateService("south")
+                .enter(new EntryRequest(ParkingType.CAR, "ABCDEF", new Date()));
+        EntryResult unknown = gateService("south")
+                .enter(new EntryRequest(ParkingType.CAR, "GHIJKL", new Date()));
+
+        assertTrue(known.getTicket().getDiscount());
+        assertFalse(unknown.getTicket().getDiscount());
+    }
+
+    @Test
+    void isKnownInOtherGarages_slowGarage_answersAfterTimeout() {
+        DataBaseConfig slow = new EmbeddedDataBaseTestConfig("garage-slow", "slow") {
+            @Override
+            public Connection getConnection() throws ClassNotFoundException, SQLException {
+                try {
+                    Thread.sleep(5_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getConnection();
+            }
+        };
+        GarageRouter slowRouter = new GarageRouter(Arrays.asList(north, slow), 100);
+        try {
+            long start = System.nanoTime();
+
+            assertFalse(slowRouter.isKnownInOtherGarages("north", "ABCDEF"));
+            assertTrue(System.nanoTime() - start < 2_000_000_000L);
+        } finally {
+            slowRouter.shutdown();
+        }
+    }
+
+    @Test
+    void getTicketDAO_unknownGarage_throws() {
+        assertThrows(IllegalArgumentException.class, () -> garageRouter.getTicketDAO("west"));
+    }
+
+    private GateService gateService(String garageId) {
+        return new GateService(garageRouter.getParkingSpotDAO(garageId),
+                garageRouter.getTicketDAO(garageId), new FareCalculatorService(),
+                new UnitOfWork(garageRouter.getDataBaseConfig(garageId)));
+    }
+
+    private static String queryString(DataBaseConfig dataBaseConfig, String sql)
+            throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehind;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.server.GateHttpServer;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GateHttpServerTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private GateHttpServer gateHttpServer;
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    void setUpPerTest() throws Exception {
+        EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("http");
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(ParkingType.CAR, 1, 50);
+        dataBaseConfig.addParkingSpots(ParkingType.BIKE, 51, 1);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.loadAvailableSpots();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.loadKnownPlates();
+        ticketDAO.loadOpenTickets();
+        GateService gateService = new GateService(parkingSpotDAO, ticketDAO,
+                new FareCalculatorService(), new UnitOfWork(dataBaseConfig));
+        gateHttpServer = new GateHttpServer(new InetSocketAddress("localhost", 0), gateService,
+                parkingSpotDAO);
+        gateHttpServer.start();
+    }
+
+    @AfterEach
+    void tearDownPerTest() {
+        gateHttpServer.stop();
+    }
+
+    @Test
+    void entryThenExit_overHttp_parksAndPricesTheVehicle() throws Exception {
+        long inTime = System.currentTimeMillis() - 2 * HOUR;
+
+        Answer entry = call("POST", "/entry", "type=BIKE&plate=AB%20123&time=" + inTime);
+        Answer full = call("POST", "/entry", "type=BIKE&plate=OTHER");
+        Answer availability = call("GET", "/availability", null);
+        Answer exit = call("POST", "/exit", "plate=AB+123&time=" + (inTime + 2 * HOUR));
+
+        assertEquals(201, entry.status);
+        assertTrue(entry.body.contains("\"ticketId\":1,"));
+        assertTrue(entry.body.contains("\"parkingNumber\":51"));
+        assertTrue(entry.body.contains("\"plate\":\"AB 123\""));
+        assertEquals(409, full.status);
+        assertTrue(availability.body.contains(
+                "\"BIKE\":{\"available\":false,\"nextParkingNumber\":0,\"free\":0,\"occupied\":1}"));
+        assertTrue(availability.body.contains(
+                "\"CAR\":{\"available\":true,\"nextParkingNumber\":1,\"free\":50,\"occupied\":0}"));
+        assertEquals(200, exit.status);
+        assertTrue(exit.body.contains("\"price\":2.0"));
+    }
+
+    @Test
+    void entryThenExit_withWriteBehind_leavesOutTheUnknownTicketId() throws Exception {
+        // Never started, the ticket stays queued without an ID
+        ticketDAO.ticketWriteBehind = new TicketWriteBehind(null, 16, 8, 5);
+
+        Answer entry = call("POST", "/entry", "type=CAR&plate=QUEUED");
+        Answer exit = call("POST", "/exit", "plate=QUEUED");
+
+        assertEquals(201, entry.status);
+        assertFalse(entry.body.contains("ticketId"));
+        assertTrue(entry.body.contains("{\"status\":\"PARKED\",\"parkingNumber\":1,"));
+        assertEquals(200, exit.status);
+        assertFalse(exit.body.contains("ticketId"));
+    }
+
+    @Test
+    void metrics_afterGateRequests_listsLatenciesPerGate() throws Exception {
+        call("POST", "/entry", "type=CAR&plate=METRICS&gate=north");
+
+        Answer metrics = call("GET", "/metrics", null);
+
+        assertEquals(200, metrics.status);
+        assertTrue(metrics.body.contains("GateService.enter count="));
+        assertTrue(metrics.body.contains("GateHttpServer.entry.gate.north count=1 "));
+    }
+
+    @Test
+    void exit_withUnknownPlate_answersNotFound() throws Exception {
+        assertEquals(404, call("POST", "/exit", "plate=UNKNOWN").status);
+    }
+
+    @Test
+    void entry_withInvalidParameters_answersBadRequest() throws Exception {
+        assertEquals(400, call("POST", "/entry", "type=TRUCK&plate=ABCDEF").status);
+        assertEquals(400, call("POST", "/entry", "type=CAR").status);
+        assertEquals(400, call("POST", "/entry", "type=CAR&plate=ABCDEFGHIJK").status);
+        assertEquals(400, call("POST", "/exit", "plate=ABCDEFGHIJK").status);
+        assertEquals(405, call("GET", "/entry", null).status);
+    }
+
+    @Test
+    void entry_fromConcurrentLanes_givesEachVehicleItsOwnSpot() throws Exception {
+        ExecutorService lanes = Executors.newFixedThreadPool(20);
+        List<Future<Answer>> entries = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            String parameters = "type=CAR&plate=LANE" + i;
+            entries.add(lanes.submit(() -> call("POST", "/entry", parameters)));
+        }
+        int parked = 0;
+        int full = 0;
+        for (Future<Answer> entry : entries) {
+            int status = entry.get().status;
+            if (status == 201) {
+                parked++;
+            } else if (status == 409) {
+                full++;
+            }
+        }
+        lanes.shutdown();
+
+        assertEquals(50, parked);
+        assertEquals(10, full);
+    }
+
+    private static class Answer {
+        private final int status;
+        private final String body;
+
+        private Answer(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private Answer call(String method, String path, String form) throws IOException {
+        URL url = new URL("http://localhost:" + gateHttpServer.getPort() + path);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        if (form != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(form.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                byte[] buffer = new byte[1024];
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    body.write(buffer, 0, read);
+                }
+            }
+        }
+        connection.disconnect();
+        return new Answer(status, new String(body.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,132 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.EntryRequest;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitRequest;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GateServiceTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private GateService gateService;
+
+    @BeforeEach
+    void setUpPerTest() throws Exception {
+        EmbeddedDataBaseTestConfig dataBaseConfig = new EmbeddedDataBaseTestConfig("gate");
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(ParkingType.CAR, 1, 20);
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.loadAvailableSpots();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.loadKnownPlates();
+        ticketDAO.loadOpenTickets();
+        gateService = new GateService(parkingSpotDAO, ticketDAO, new FareCalculatorService(),
+                new UnitOfWork(dataBaseConfig));
+    }
+
+    @Test
+    void enterThenExit_withRequestTimes_pricesTheStay() throws Exception {
+        Date inTime = new Date(System.currentTimeMillis() - 2 * HOUR);
+
+        EntryResult entry = gateService.enter(
+                new EntryRequest(ParkingType.CAR, "ABCDEF", inTime));
+        ExitResult exit = gateService.exit(
+                new ExitRequest("ABCDEF", new Date(inTime.getTime() + 2 * HOUR)));
+
+        assertEquals(EntryResult.Status.PARKED, entry.getStatus());
+        assertEquals(1, entry.getTicket().getParkingSpot().getId());
+        assertEquals(ExitResult.Status.CHECKED_OUT, exit.getStatus());
+        assertEquals(3.0, exit.getTicket().getPrice(), 0.001);
+    }
+
+    @Test
+    void exit_withoutOpenTicket_returnsNoTicket() throws Exception {
+        ExitResult exit = gateService.exit(new ExitRequest("UNKNOWN", new Date()));
+
+        assertEquals(ExitResult.Status.NO_TICKET, exit.getStatus());
+        assertNull(exit.getTicket());
+    }
+
+    @Test
+    void enter_withPlateInLowerCase_recognizesARecurringUser() throws Exception {
+        Date inTime = new Date(System.currentTimeMillis() - 2 * HOUR);
+        gateService.enter(new EntryRequest(ParkingType.CAR, "ABCDEF", inTime));
+        gateService.exit(new ExitRequest("ABCDEF", new Date(inTime.getTime() + HOUR)));
+
+        EntryResult entry = gateService.enter(
+                new EntryRequest(ParkingType.CAR, "abcdef", new Date()));
+
+        assertTrue(entry.getTicket().getDiscount());
+        assertEquals("ABCDEF", entry.getTicket().getVehicleRegNumber());
+    }
+
+    @Test
+    void enterAndExit_withInvalidPlate_throwIllegalArgumentException() {
+        Date now = new Date();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> gateService.enter(new EntryRequest(ParkingType.CAR, null, now)));
+        assertThrows(IllegalArgumentException.class,
+                () -> gateService.enter(new EntryRequest(ParkingType.CAR, "ABCDEFGHIJK", now)));
+        assertThrows(IllegalArgumentException.class,
+                () -> gateService.exit(new ExitRequest(null, now)));
+        assertThrows(IllegalArgumentException.class,
+                () -> gateService.exit(new ExitRequest("ABCDEFGHIJK", now)));
+    }
+
+    @Test
+    void enter_fromConcurrentGates_parksEveryVehicleInItsOwnSpotUntilFull() throws Exception {
+        ExecutorService gates = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<EntryResult>> entries = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            EntryRequest request = new EntryRequest(ParkingType.CAR, "PLATE" + i, new Date());
+            entries.add(gates.submit(() -> {
+                start.await();
+                return gateService.enter(request);
+            }));
+        }
+        start.countDown();
+        Set<Integer> spots = new HashSet<>();
+        int full = 0;
+        for (Future<EntryResult> entry : entries) {
+            EntryResult result = entry.get();
+            if (result.getStatus() == EntryResult.Status.PARKED) {
+                spots.add(result.getTicket().getParkingSpot().getId());
+            } else {
+                full++;
+            }
+        }
+        gates.shutdown();
+
+        assertEquals(20, spots.size());
+        assertEquals(10, full);
+    }
+}
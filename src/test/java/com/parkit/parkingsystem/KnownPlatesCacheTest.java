@@ -0,0 +1,84 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.util.BloomFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KnownPlatesCacheTest {
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("knownPlates");
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(ParkingType.CAR, 1, 3);
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @Test
+    void bloomFilter_afterPuttingPlates_neverMissesOneAndRarelyMatchesOthers() {
+        BloomFilter bloomFilter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            bloomFilter.put("AB-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(bloomFilter.mightContain("AB-" + i));
+            if (bloomFilter.mightContain("CD-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300);
+    }
+
+    @Test
+    void isRecurringUser_withLoadedCache_answersForOldAndNewPlates() {
+        ticketDAO.saveTicket(newTicket("OLD-1"));
+        TicketDAO restartedTicketDAO = new TicketDAO();
+        restartedTicketDAO.dataBaseConfig = dataBaseConfig;
+        restartedTicketDAO.loadKnownPlates();
+
+        assertTrue(restartedTicketDAO.isRecurringUser("OLD-1"));
+        assertFalse(restartedTicketDAO.isRecurringUser("NEW-1"));
+
+        restartedTicketDAO.saveTicket(newTicket("NEW-1"));
+
+        assertTrue(restartedTicketDAO.isRecurringUser("NEW-1"));
+    }
+
+    @Test
+    void knownPlatesCache_withPlatesInAnyCase_matchesThemInUpperCase() {
+        // Saved as typed, before gates put plates in upper case
+        ticketDAO.saveTicket(newTicket("old-1"));
+        TicketDAO restartedTicketDAO = new TicketDAO();
+        restartedTicketDAO.dataBaseConfig = dataBaseConfig;
+        restartedTicketDAO.loadKnownPlates();
+
+        restartedTicketDAO.knownPlatesCache.confirm("new-1");
+
+        assertTrue(restartedTicketDAO.knownPlatesCache.mightBeKnown("OLD-1"));
+        assertTrue(restartedTicketDAO.knownPlatesCache.isConfirmed("NEW-1"));
+    }
+
+    private Ticket newTicket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+}
@@ -0,0 +1,58 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void getValueAtPercentile_afterUniformValues_isWithinThreePercent() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (long micros = 1; micros <= 10000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(10000, histogram.getCount());
+        assertEquals(5000, histogram.getP50Micros(), 150);
+        assertEquals(9900, histogram.getP99Micros(), 300);
+        assertEquals(10000, histogram.getMaxMicros());
+        assertEquals(5000, histogram.getMeanMicros(), 1);
+    }
+
+    @Test
+    void getValueAtPercentile_forSmallValues_isExact() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (long nanos = 0; nanos < 64; nanos++) {
+            histogram.record(nanos);
+        }
+
+        assertEquals(31, histogram.getValueAtPercentile(50));
+        assertEquals(63, histogram.getValueAtPercentile(100));
+        assertEquals(0, new LatencyHistogram("empty").getValueAtPercentile(99));
+    }
+
+    @Test
+    void histogram_sameName_isSharedAndPublishedThroughJmx() throws Exception {
+        LatencyHistogram histogram = Metrics.histogram("LatencyHistogramTest.shared");
+        Counter counter = Metrics.counter("LatencyHistogramTest.failures");
+        histogram.record(2_000_000);
+        counter.increment();
+
+        assertSame(histogram, Metrics.histogram("LatencyHistogramTest.shared"));
+        Object count = ManagementFactory.getPlatformMBeanServer().getAttribute(new ObjectName(
+                "com.parkit.parkingsystem:type=Latency,name=\"LatencyHistogramTest.shared\""),
+                "Count");
+        assertEquals(1L, count);
+        assertTrue(Metrics.dump().contains("LatencyHistogramTest.shared count=1 mean_us=2000"));
+        assertTrue(Metrics.dump().contains("LatencyHistogramTest.failures count=1"));
+    }
+}
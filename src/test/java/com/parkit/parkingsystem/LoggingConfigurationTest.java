@@ -0,0 +1,21 @@
+package com.parkit.parkingsystem;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.async.AsyncLogger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoggingConfigurationTest {
+
+    @Test
+    void getLogger_withComponentProperties_returnsAsyncLogger() {
+        assertTrue(LogManager.getLogger("DataBaseConfig") instanceof AsyncLogger);
+    }
+
+    @Test
+    void dataBaseChatter_atDefaultLevel_isNotLogged() {
+        assertFalse(LogManager.getLogger("DataBaseConfig").isDebugEnabled());
+    }
+}
@@ -0,0 +1,157 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ConnectionState;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehind;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.EntryRequest;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitRequest;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateService;
+import com.parkit.parkingsystem.util.AppendOnlyJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OfflineModeTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private UnreachableDataBaseConfig dataBaseConfig;
+    private Path journalFile;
+    private AppendOnlyJournal journal;
+    private ConnectionState connectionState;
+    private TicketWriteBehind ticketWriteBehind;
+    private TicketDAO ticketDAO;
+    private GateService gateService;
+
+    /*
+     * H2 database that can be made unreachable, as MySQL during a maintenance window
+     */
+    private static class UnreachableDataBaseConfig extends EmbeddedDataBaseTestConfig {
+        private volatile boolean down;
+
+        private UnreachableDataBaseConfig() {
+            super("offline");
+        }
+
+        @Override
+        public Connection getConnection() throws ClassNotFoundException, SQLException {
+            if (down) {
+                throw new SQLTransientConnectionException("Connection is not available");
+            }
+            return super.getConnection();
+        }
+    }
+
+    @BeforeEach
+    void setUpPerTest() throws Exception {
+        dataBaseConfig = new UnreachableDataBaseConfig();
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(ParkingType.CAR, 1, 3);
+        journalFile = Files.createTempFile("offline", ".dat");
+        journal = new AppendOnlyJournal(journalFile, 1024 * 1024, false);
+        connectionState = new ConnectionState();
+        ticketWriteBehind = new TicketWriteBehind(journal, 16, 8, 5);
+        ticketWriteBehind.dataBaseConfig = dataBaseConfig;
+        ticketWriteBehind.connectionState = connectionState;
+        ticketWriteBehind.start();
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.connectionState = connectionState;
+        parkingSpotDAO.ticketWriteBehind = ticketWriteBehind;
+        parkingSpotDAO.loadAvailableSpots();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.connectionState = connectionState;
+        ticketDAO.ticketWriteBehind = ticketWriteBehind;
+        ticketDAO.loadKnownPlates();
+        ticketDAO.loadOpenTickets();
+        gateService = new GateService(parkingSpotDAO, ticketDAO, new FareCalculatorService(),
+                new UnitOfWork(dataBaseConfig, connectionState));
+    }
+
+    @AfterEach
+    void tearDownPerTest() throws Exception {
+        dataBaseConfig.down = false;
+        ticketWriteBehind.stop(1000);
+        journal.close();
+        Files.delete(journalFile);
+    }
+
+    @Test
+    void gates_whileDatabaseDown_keepWorkingAndAreReconciledWhenItIsBack() throws Exception {
+        long inTime = System.currentTimeMillis() - 2 * HOUR;
+        gateService.enter(new EntryRequest(ParkingType.CAR, "ONLINE", new Date(inTime)));
+        assertTrue(ticketWriteBehind.flush(5000));
+
+        dataBaseConfig.down = true;
+        EntryResult first = gateService.enter(
+                new EntryRequest(ParkingType.CAR, "OFFLINE1", new Date(inTime)));
+        EntryResult second = gateService.enter(
+                new EntryRequest(ParkingType.CAR, "OFFLINE2", new Date(inTime)));
+        ExitResult exit = gateService.exit(
+                new ExitRequest("ONLINE", new Date(inTime + 2 * HOUR)));
+        EntryResult third = gateService.enter(
+                new EntryRequest(ParkingType.CAR, "OFFLINE3", new Date(inTime)));
+
+        assertTrue(connectionState.isOffline());
+        assertEquals(2, first.getTicket().getParkingSpot().getId());
+        assertEquals(3, second.getTicket().getParkingSpot().getId());
+        assertEquals(3.0, exit.getTicket().getPrice(), 0.001);
+        assertEquals(1, third.getTicket().getParkingSpot().getId());
+        assertTrue(journal.hasUnapplied());
+
+        dataBaseConfig.down = false;
+        assertTrue(ticketWriteBehind.flush(5000));
+
+        assertFalse(connectionState.isOffline());
+        assertFalse(journal.hasUnapplied());
+        assertEquals(4, count("select count(*) from ticket"));
+        assertEquals(1, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'ONLINE'"
+                + " and OUT_TIME is not null and PRICE = 3.0"));
+        assertEquals(3, count("select count(*) from parking where AVAILABLE = false"));
+    }
+
+    @Test
+    void isRecurringUser_whileOffline_onlyTrustsConfirmedPlates() throws Exception {
+        gateService.enter(new EntryRequest(ParkingType.CAR, "ONLINE", new Date()));
+        assertTrue(ticketWriteBehind.flush(5000));
+        // In the Bloom filter, as loaded at start, but never checked against the database
+        ticketDAO.knownPlatesCache.add("FILTERED");
+
+        dataBaseConfig.down = true;
+        connectionState.setOffline(true);
+
+        assertTrue(ticketDAO.isRecurringUser("ONLINE"));
+        assertFalse(ticketDAO.isRecurringUser("FILTERED"));
+        assertFalse(ticketDAO.isRecurringUser("UNKNOWN"));
+    }
+
+    private int count(String query) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(query);
+                ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
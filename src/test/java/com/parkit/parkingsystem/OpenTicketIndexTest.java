@@ -0,0 +1,93 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OpenTicketIndexTest {
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("openTickets");
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(ParkingType.CAR, 1, 3);
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.loadOpenTickets();
+    }
+
+    @Test
+    void getTicket_afterSaveTicket_returnsTheOpenTicketWithItsId() {
+        Ticket ticket = newTicket("ABCDEF", 2);
+        ticketDAO.saveTicket(ticket);
+
+        Ticket openTicket = ticketDAO.getTicket("ABCDEF");
+
+        assertNotNull(openTicket);
+        assertTrue(openTicket.getId() > 0);
+        assertEquals(ticket.getId(), openTicket.getId());
+        assertEquals(2, openTicket.getParkingSpot().getId());
+        assertEquals(ParkingType.CAR, openTicket.getParkingSpot().getParkingType());
+    }
+
+    @Test
+    void getTicket_afterUpdateTicket_returnsNull() {
+        ticketDAO.saveTicket(newTicket("ABCDEF", 1));
+        Ticket ticket = ticketDAO.getTicket("ABCDEF");
+        ticket.setOutTime(new Date());
+
+        assertTrue(ticketDAO.updateTicket(ticket));
+
+        assertNull(ticketDAO.getTicket("ABCDEF"));
+    }
+
+    @Test
+    void loadOpenTickets_afterRestart_findsOnlyOpenTickets() {
+        ticketDAO.saveTicket(newTicket("OPEN", 1));
+        Ticket closedTicket = newTicket("CLOSED", 2);
+        closedTicket.setOutTime(new Date());
+        ticketDAO.saveTicket(closedTicket);
+        TicketDAO restartedTicketDAO = new TicketDAO();
+        restartedTicketDAO.dataBaseConfig = dataBaseConfig;
+
+        restartedTicketDAO.loadOpenTickets();
+
+        assertNotNull(restartedTicketDAO.getTicket("OPEN"));
+        assertNull(restartedTicketDAO.getTicket("CLOSED"));
+    }
+
+    @Test
+    void getTicket_withPlateInOtherCase_returnsTheOpenTicket() {
+        // Saved as typed, before gates put plates in upper case
+        ticketDAO.saveTicket(newTicket("abcdef", 1));
+        TicketDAO restartedTicketDAO = new TicketDAO();
+        restartedTicketDAO.dataBaseConfig = dataBaseConfig;
+
+        restartedTicketDAO.loadOpenTickets();
+
+        assertNotNull(restartedTicketDAO.getTicket("ABCDEF"));
+        assertNotNull(restartedTicketDAO.getTicket("abcdef"));
+    }
+
+    private Ticket newTicket(String vehicleRegNumber, int parkingNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+}
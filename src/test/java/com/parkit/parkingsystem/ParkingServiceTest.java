@@ -27,6 +27,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -60,7 +61,7 @@ public class ParkingServiceTest {
         @Test
         public void processIncomingVehicle_carWithCorrectParameters_doesNotThrow() throws SQLException {
             when(inputReaderUtil.readSelection()).thenReturn(1);
-            when(parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
+            when(parkingSpotDAO.reserveNextAvailableSlot(ParkingType.CAR)).thenReturn(1);
             when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
             when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
 
@@ -69,17 +70,17 @@ public class ParkingServiceTest {
             });
 
             verify(inputReaderUtil).readSelection();
-            verify(parkingSpotDAO).getNextAvailableSlot((ParkingType.CAR));
+            verify(parkingSpotDAO).reserveNextAvailableSlot((ParkingType.CAR));
             verify(inputReaderUtil).readVehicleRegistrationNumber();
-            verify(ticketDAO).getNbTicket(any(String.class));
-            verify(parkingSpotDAO).updateParking(any(ParkingSpot.class));
+            verify(ticketDAO).isRecurringUser(any(String.class));
+            verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
             verify(ticketDAO).saveTicket(any(Ticket.class));
         }
 
         @Test
         public void processIncomingVehicle_bikeWithCorrectParameters_doesNotThrow() throws SQLException {
             when(inputReaderUtil.readSelection()).thenReturn(2);
-            when(parkingSpotDAO.getNextAvailableSlot(ParkingType.BIKE)).thenReturn(1);
+            when(parkingSpotDAO.reserveNextAvailableSlot(ParkingType.BIKE)).thenReturn(1);
             when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
             when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
 
@@ -88,39 +89,40 @@ public class ParkingServiceTest {
             });
 
             verify(inputReaderUtil).readSelection();
-            verify(parkingSpotDAO).getNextAvailableSlot((ParkingType.BIKE));
+            verify(parkingSpotDAO).reserveNextAvailableSlot((ParkingType.BIKE));
             verify(inputReaderUtil).readVehicleRegistrationNumber();
-            verify(ticketDAO).getNbTicket(any(String.class));
-            verify(parkingSpotDAO).updateParking(any(ParkingSpot.class));
+            verify(ticketDAO).isRecurringUser(any(String.class));
+            verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
             verify(ticketDAO).saveTicket(any(Ticket.class));
         }
 
         @Test
         public void processIncomingVehicle_whenParkingSpotIsNull_throwsException() {
             when(inputReaderUtil.readSelection()).thenReturn(1);
-            when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(0);
+            when(parkingSpotDAO.reserveNextAvailableSlot(any(ParkingType.class))).thenReturn(0);
+            when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
 
             assertThrows(Exception.class, () -> parkingService.processIncomingVehicle());
 
             verify(inputReaderUtil).readSelection();
-            verify(parkingSpotDAO).getNextAvailableSlot(any(ParkingType.class));
+            verify(parkingSpotDAO).reserveNextAvailableSlot(any(ParkingType.class));
         }
 
         @Test
         public void processIncomingVehicle_whenUnableToUpdateDB_throwsException() throws SQLException {
             when(inputReaderUtil.readSelection()).thenReturn(1);
-            when(parkingSpotDAO.getNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
+            when(parkingSpotDAO.reserveNextAvailableSlot(any(ParkingType.class))).thenReturn(1);
             when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
             when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(false);
 
             assertThrows(SQLException.class, () -> parkingService.processIncomingVehicle());
 
             verify(inputReaderUtil).readSelection();
-            verify(parkingSpotDAO).getNextAvailableSlot(any(ParkingType.class));
+            verify(parkingSpotDAO).reserveNextAvailableSlot(any(ParkingType.class));
             verify(inputReaderUtil).readVehicleRegistrationNumber();
-            verify(ticketDAO).getNbTicket(any(String.class));
-            verify(parkingSpotDAO).updateParking(any(ParkingSpot.class));
+            verify(ticketDAO).isRecurringUser(any(String.class));
             verify(ticketDAO).saveTicket(any(Ticket.class));
+            verify(parkingSpotDAO).updateParking(argThat(ParkingSpot::isAvailable));
         }
     }
 
@@ -205,6 +207,7 @@ public class ParkingServiceTest {
             assertEquals(expectedParkingSpot, testParkingSpot);
             verify(inputReaderUtil).readSelection();
             verify(parkingSpotDAO).getNextAvailableSlot(ParkingType.CAR);
+            verify(parkingSpotDAO, never()).reserveNextAvailableSlot(any(ParkingType.class));
         }
 
         @Test
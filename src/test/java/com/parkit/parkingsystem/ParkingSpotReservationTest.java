@@ -0,0 +1,163 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParkingSpotReservationTest {
+
+    private static final int SPOTS = 1000;
+    private static final int ENTRIES = 3000;
+    private static final int GATES = 32;
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+
+    @BeforeEach
+    void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("reservation");
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(ParkingType.CAR, 1, SPOTS);
+    }
+
+    @Test
+    void reserveNextAvailableSlot_withConcurrentGates_neverHandsOutASpotTwice() throws Exception {
+        // One DAO with the in-memory index and one without, as two processes sharing the database
+        ParkingSpotDAO indexedDAO = new ParkingSpotDAO();
+        indexedDAO.dataBaseConfig = dataBaseConfig;
+        indexedDAO.loadAvailableSpots();
+        ParkingSpotDAO queryDAO = new ParkingSpotDAO();
+        queryDAO.dataBaseConfig = dataBaseConfig;
+
+        assertEveryFreeSpotHandedOutOnce(reserveConcurrently(indexedDAO, queryDAO));
+    }
+
+    @Test
+    void reserveNextAvailableSlot_withoutIndex_handsOutEverySpot() throws Exception {
+        ParkingSpotDAO firstDAO = new ParkingSpotDAO();
+        firstDAO.dataBaseConfig = dataBaseConfig;
+        ParkingSpotDAO secondDAO = new ParkingSpotDAO();
+        secondDAO.dataBaseConfig = dataBaseConfig;
+
+        assertEveryFreeSpotHandedOutOnce(reserveConcurrently(firstDAO, secondDAO));
+    }
+
+    @Test
+    void reserveNextAvailableSlot_withoutIndexInStaleSnapshot_movesOnToTheNextSpot()
+            throws Exception {
+        // The free spot query reads a copy of the table, as a REPEATABLE READ snapshot would
+        execute("create table parking_snapshot as select * from parking");
+        EmbeddedDataBaseTestConfig snapshotDataBaseConfig =
+                new EmbeddedDataBaseTestConfig("reservation") {
+                    @Override
+                    public Connection getConnection()
+                            throws ClassNotFoundException, SQLException {
+                        return readingSnapshot(super.getConnection());
+                    }
+                };
+        ParkingSpotDAO gateDAO = new ParkingSpotDAO();
+        gateDAO.dataBaseConfig = snapshotDataBaseConfig;
+        // Another gate takes spot 1 after the snapshot was taken
+        execute("update parking set AVAILABLE = false where PARKING_NUMBER = 1");
+
+        // A gate that kept retrying the taken spot would never return
+        int parkingNumber = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> gateDAO.reserveNextAvailableSlot(ParkingType.CAR));
+
+        assertEquals(2, parkingNumber);
+        assertEquals(2, countUnavailableSpots());
+    }
+
+    private static Connection readingSnapshot(Connection con) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    if ("prepareStatement".equals(method.getName())
+                            && DBConstants.GET_NEXT_PARKING_SPOT.equals(args[0])) {
+                        args[0] = DBConstants.GET_NEXT_PARKING_SPOT
+                                .replace("from parking", "from parking_snapshot");
+                    }
+                    try {
+                        return method.invoke(con, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private void execute(String statement) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(statement)) {
+            ps.execute();
+        }
+    }
+
+    private void assertEveryFreeSpotHandedOutOnce(List<Integer> reservedSpots) throws Exception {
+        List<Integer> givenSpots = new ArrayList<>();
+        for (int parkingNumber : reservedSpots) {
+            // A gate is only turned away once the parking is full, never with an error
+            assertTrue(parkingNumber >= 0);
+            if (parkingNumber > 0) {
+                givenSpots.add(parkingNumber);
+            }
+        }
+        Set<Integer> distinctSpots = new HashSet<>(givenSpots);
+        assertEquals(givenSpots.size(), distinctSpots.size());
+        assertEquals(SPOTS, givenSpots.size());
+        assertEquals(SPOTS, countUnavailableSpots());
+    }
+
+    private int countUnavailableSpots() throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(
+                        "select count(*) from parking where AVAILABLE = false");
+                ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private List<Integer> reserveConcurrently(ParkingSpotDAO... parkingSpotDAOs)
+            throws Exception {
+        ExecutorService gates = Executors.newFixedThreadPool(GATES);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> entries = new ArrayList<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            ParkingSpotDAO parkingSpotDAO = parkingSpotDAOs[i % parkingSpotDAOs.length];
+            Callable<Integer> entry = () -> {
+                start.await();
+                return parkingSpotDAO.reserveNextAvailableSlot(ParkingType.CAR);
+            };
+            entries.add(gates.submit(entry));
+        }
+        start.countDown();
+        List<Integer> reservedSpots = new ArrayList<>();
+        for (Future<Integer> entry : entries) {
+            reservedSpots.add(entry.get());
+        }
+        gates.shutdown();
+        return reservedSpots;
+    }
+}
@@ -0,0 +1,147 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.EntryRequest;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitRequest;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * The replica is a second in-memory database that is never kept in sync, so every read tells
+ * which of the two databases answered it
+ */
+public class ReadReplicaTest {
+
+    private static final long MAX_LAG_MS = 200;
+
+    private EmbeddedDataBaseTestConfig primary;
+    private EmbeddedDataBaseTestConfig replica;
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    void setUpPerTest() throws Exception {
+        replica = new EmbeddedDataBaseTestConfig("replica");
+        replica.createSchema();
+        replica.addParkingSpots(ParkingType.CAR, 1, 1);
+        primary = new PrimaryDataBaseConfig("replica-primary", replica.getJdbcUrl());
+        primary.createSchema();
+        primary.addParkingSpots(ParkingType.CAR, 1, 1);
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = primary;
+        // Only the replica knows this plate
+        try (Connection con = replica.getConnection();
+                PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+            ps.setInt(1, 1);
+            ps.setString(2, "REPLICA");
+            ps.setDouble(3, 0);
+            ps.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+            ps.setTimestamp(5, null);
+            ps.setBoolean(6, false);
+            ps.executeUpdate();
+        }
+        try (Connection con = replica.getConnection();
+                PreparedStatement ps = con.prepareStatement(DBConstants.ADD_VEHICLE_VISIT)) {
+            ps.setString(1, "REPLICA");
+            ps.setInt(2, 1);
+            ps.setDouble(3, 0);
+            ps.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+            ps.executeUpdate();
+        }
+    }
+
+    @Test
+    void getNbTicket_plateNotWrittenHere_readsReplica() {
+        assertEquals(1, ticketDAO.getNbTicket("REPLICA"));
+    }
+
+    @Test
+    void getTicket_rightAfterEntry_readsPrimaryUntilLagPassed() throws Exception {
+        assertTrue(ticketDAO.saveTicket(openTicket("ABCDEF")));
+
+        assertEquals("ABCDEF", ticketDAO.getTicket("ABCDEF").getVehicleRegNumber());
+        assertEquals(1, ticketDAO.getNbTicket("ABCDEF"));
+        Thread.sleep(MAX_LAG_MS * 2);
+        // The replica never got the write
+        assertEquals(0, ticketDAO.getNbTicket("ABCDEF"));
+    }
+
+    @Test
+    void getNbTicket_insideUnitOfWork_readsPrimary() throws Exception {
+        int nbTicket = new UnitOfWork(primary).execute(() -> ticketDAO.getNbTicket("REPLICA"));
+
+        assertEquals(0, nbTicket);
+    }
+
+    @Test
+    void getNbTicket_plateWrittenInUnitOfWork_readsPrimary() throws Exception {
+        int nbTicket = new UnitOfWork(primary).execute(() -> {
+            assertTrue(ticketDAO.saveTicket(openTicket("ABCDEF")));
+            return ticketDAO.getNbTicket("ABCDEF");
+        });
+
+        assertEquals(1, nbTicket);
+    }
+
+    @Test
+    void enterAndExit_gateLookups_readPrimary() throws Exception {
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = primary;
+        GateService gateService = new GateService(parkingSpotDAO, ticketDAO,
+                new FareCalculatorService(), new UnitOfWork(primary));
+
+        // The open ticket only on the replica must not be the one closed and charged
+        ExitResult exit = gateService.exit(new ExitRequest("REPLICA", new Date()));
+        EntryResult entry = gateService.enter(
+                new EntryRequest(ParkingType.CAR, "REPLICA", new Date()));
+
+        assertFalse(entry.getTicket().getDiscount());
+        assertEquals(ExitResult.Status.NO_TICKET, exit.getStatus());
+    }
+
+    private static Ticket openTicket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+
+    private static class PrimaryDataBaseConfig extends EmbeddedDataBaseTestConfig {
+        private final String replicaUrl;
+
+        private PrimaryDataBaseConfig(String name, String replicaUrl) {
+            super(name);
+            this.replicaUrl = replicaUrl;
+        }
+
+        @Override
+        protected String getReplicaJdbcUrl() {
+            return replicaUrl;
+        }
+
+        @Override
+        protected long getReplicaMaxLagMs() {
+            return MAX_LAG_MS;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.RepricingReport;
+import com.parkit.parkingsystem.service.RepricingService;
+import com.parkit.parkingsystem.service.VehicleSummaryBackfillService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RepricingServiceTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final long IN_TIME = 1_700_000_000_000L;
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private ForkJoinPool forkJoinPool;
+    private RepricingService repricingService;
+
+    @BeforeEach
+    void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("repricing");
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(ParkingType.CAR, 1, 1);
+        dataBaseConfig.addParkingSpots(ParkingType.BIKE, 2, 1);
+        forkJoinPool = new ForkJoinPool(4);
+        repricingService = new RepricingService(new UnitOfWork(dataBaseConfig), forkJoinPool, 7);
+        repricingService.ticketBatchDAO.dataBaseConfig = dataBaseConfig;
+        // 50 tickets of one hour, every fifth one stored with a wrong price
+        try (Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement("insert into ticket(PARKING_NUMBER,"
+                        + " VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, DISCOUNT)"
+                        + " values(?,?,?,?,?,?)")) {
+            for (int i = 0; i < 50; i++) {
+                boolean car = i % 2 == 0;
+                boolean discount = i % 3 == 0;
+                double price = (car ? 1.5 : 1.0) * (discount ? 0.95 : 1.0);
+                ps.setInt(1, car ? 1 : 2);
+                ps.setString(2, "PLATE" + i);
+                ps.setDouble(3, i % 5 == 0 ? price + 1 : price);
+                ps.setTimestamp(4, new Timestamp(IN_TIME + i * HOUR));
+                ps.setTimestamp(5, new Timestamp(IN_TIME + (i + 1) * HOUR));
+                ps.setBoolean(6, discount);
+                ps.addBatch();
+            }
+            // Still parked, never re-priced
+            ps.setInt(1, 1);
+            ps.setString(2, "OPEN");
+            ps.setDouble(3, 0);
+            ps.setTimestamp(4, new Timestamp(IN_TIME));
+            ps.setTimestamp(5, null);
+            ps.setBoolean(6, false);
+            ps.addBatch();
+            ps.executeBatch();
+        }
+    }
+
+    @AfterEach
+    void tearDownPerTest() {
+        forkJoinPool.shutdown();
+    }
+
+    @Test
+    void reprice_withoutCorrection_reportsMismatchesAndWritesNothing() throws Exception {
+        RepricingReport report = repricingService.reprice(new Date(0),
+                new Date(IN_TIME + 100 * HOUR), false);
+
+        assertTrue(report.isCompleted());
+        assertEquals(50, report.getScannedCount());
+        assertEquals(10, report.getMismatchCount());
+        assertEquals(0, report.getCorrectedCount());
+        assertEquals(-1000, report.getDifferenceInCents());
+        assertEquals(10, report.getMismatches().size());
+        assertEquals(10, countWrongPrices());
+    }
+
+    @Test
+    void reprice_withCorrection_writesExpectedPrices() throws Exception {
+        RepricingReport report = repricingService.reprice(new Date(0),
+                new Date(IN_TIME + 100 * HOUR), true);
+
+        assertTrue(report.isCompleted());
+        assertEquals(10, report.getCorrectedCount());
+        assertEquals(0, countWrongPrices());
+        assertEquals(0, repricingService.reprice(new Date(0), new Date(IN_TIME + 100 * HOUR), false)
+                .getMismatchCount());
+    }
+
+    @Test
+    void reprice_withCorrection_appliesDifferenceToVehicleSummary() throws Exception {
+        VehicleSummaryBackfillService backfillService =
+                new VehicleSummaryBackfillService(new UnitOfWork(dataBaseConfig));
+        backfillService.vehicleSummaryDAO.dataBaseConfig = dataBaseConfig;
+        backfillService.backfill();
+
+        repricingService.reprice(new Date(0), new Date(IN_TIME + 100 * HOUR), true);
+
+        // Stored one euro too high, discounted car hour
+        assertEquals(1.425, backfillService.vehicleSummaryDAO.getVehicleSummary("PLATE0")
+                .getTotalSpent(), 0.000_001);
+        assertEquals(1.0, backfillService.vehicleSummaryDAO.getVehicleSummary("PLATE1")
+                .getTotalSpent(), 0.000_001);
+    }
+
+    @Test
+    void updatePrices_withStalePreviousPrice_neitherWritesNorCountsTwice() throws Exception {
+        VehicleSummaryBackfillService backfillService =
+                new VehicleSummaryBackfillService(new UnitOfWork(dataBaseConfig));
+        backfillService.vehicleSummaryDAO.dataBaseConfig = dataBaseConfig;
+        backfillService.backfill();
+
+        // Two overlapping runs both read the wrong price of PLATE0
+        assertTrue(repricingService.ticketBatchDAO.updatePrices(new int[] {1},
+                new double[] {1.425}, new double[] {2.425}, 1));
+        assertTrue(repricingService.ticketBatchDAO.updatePrices(new int[] {1},
+                new double[] {1.425}, new double[] {2.425}, 1));
+
+        assertEquals(1.425, backfillService.vehicleSummaryDAO.getVehicleSummary("PLATE0")
+                .getTotalSpent(), 0.000_001);
+        assertEquals(9, countWrongPrices());
+    }
+
+    @Test
+    void reprice_overAPeriod_onlyChecksTicketsClosedInIt() {
+        RepricingReport report = repricingService.reprice(new Date(IN_TIME + HOUR),
+                new Date(IN_TIME + 11 * HOUR), false);
+
+        assertEquals(10, report.getScannedCount());
+        assertEquals(2, report.getMismatchCount());
+    }
+
+    private int countWrongPrices() throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(
+                        "select count(*) from ticket where PRICE > 1.6");
+                ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketBatchDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.model.TicketChunk;
+import com.parkit.parkingsystem.service.TicketArchiveService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TicketArchiveServiceTest {
+
+    private static final long ARCHIVE_AFTER_MS = TimeUnit.DAYS.toMillis(31);
+    private static final long OLD = System.currentTimeMillis() - 2 * ARCHIVE_AFTER_MS;
+    private static final long RECENT = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2);
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private TicketArchiveService ticketArchiveService;
+
+    @BeforeEach
+    void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("archive");
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(ParkingType.CAR, 1, 2);
+        // Batches of 2 so that the plate counts are added up over several transactions
+        ticketArchiveService = new TicketArchiveService(new UnitOfWork(dataBaseConfig),
+                ARCHIVE_AFTER_MS, 2, 0);
+        ticketArchiveService.ticketArchiveDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @Test
+    void archive_oldClosedTickets_movedAndStillCountedForPlate() throws Exception {
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        for (int i = 0; i < 5; i++) {
+            assertTrue(ticketDAO.saveTicket(closedTicket("ABCDEF", OLD + i * 60_000L)));
+        }
+        assertTrue(ticketDAO.saveTicket(closedTicket("GHIJKL", RECENT)));
+
+        assertEquals(5, ticketArchiveService.archive());
+
+        assertEquals(1, count("select count(*) from ticket"));
+        assertEquals(5, count("select count(*) from ticket_archive"));
+        assertEquals(5, ticketDAO.getNbTicket("ABCDEF"));
+        assertTrue(ticketDAO.isKnownPlate("ABCDEF"));
+        assertTrue(ticketDAO.loadKnownPlates());
+        assertTrue(ticketDAO.knownPlatesCache.mightBeKnown("ABCDEF"));
+    }
+
+    @Test
+    void archive_openAndRecentTickets_kept() throws Exception {
+        saveTicket("ABCDEF", OLD, null);
+        saveTicket("GHIJKL", RECENT, RECENT + 60_000L);
+        saveTicket("MNOPQR", RECENT, null);
+
+        assertEquals(0, ticketArchiveService.archive());
+
+        assertEquals(3, count("select count(*) from ticket"));
+        assertEquals(0, count("select count(*) from ticket_archive"));
+    }
+
+    @Test
+    void forEachClosedTicketChunk_afterArchive_readsBothTables() throws Exception {
+        saveTicket("ABCDEF", OLD, OLD + 60_000L);
+        saveTicket("GHIJKL", RECENT, RECENT + 60_000L);
+        ticketArchiveService.archive();
+        TicketBatchDAO ticketBatchDAO = new TicketBatchDAO();
+        ticketBatchDAO.dataBaseConfig = dataBaseConfig;
+        int[] read = new int[1];
+
+        assertTrue(ticketBatchDAO.forEachClosedTicketChunk(new Date(0), new Date(),
+                new TicketChunk(10), chunk -> {
+                    read[0] += chunk.getSize();
+                    return true;
+                }));
+        assertTrue(ticketBatchDAO.updatePrices(new int[] {1}, new double[] {2.5},
+                new double[] {0}, 1));
+
+        assertEquals(2, read[0]);
+        assertEquals(1, count("select count(*) from ticket_archive where ID = 1 and PRICE = 2.5"));
+    }
+
+    private static Ticket closedTicket(String vehicleRegNumber, long inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date(inTime));
+        ticket.setOutTime(new Date(inTime + 30_000L));
+        ticket.setPrice(1.5);
+        return ticket;
+    }
+
+    private void saveTicket(String vehicleRegNumber, long inTime, Long outTime) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+            ps.setInt(1, 1);
+            ps.setString(2, vehicleRegNumber);
+            ps.setDouble(3, 0);
+            ps.setTimestamp(4, new Timestamp(inTime));
+            ps.setTimestamp(5, outTime == null ? null : new Timestamp(outTime));
+            ps.setBoolean(6, false);
+            ps.executeUpdate();
+        }
+    }
+
+    private int count(String sql) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(sql);
+                ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
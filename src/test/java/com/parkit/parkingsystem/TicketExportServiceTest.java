@@ -0,0 +1,163 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ExportConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ExportReport;
+import com.parkit.parkingsystem.model.TicketHistoryChunk;
+import com.parkit.parkingsystem.service.TicketExportService;
+import com.parkit.parkingsystem.util.TicketColumnFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TicketExportServiceTest {
+
+    private static final String DAY_1 = "2024-01-01";
+    private static final String DAY_2 = "2024-01-02";
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private Path directory;
+    private TicketExportService ticketExportService;
+
+    @BeforeEach
+    void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("export");
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(ParkingType.CAR, 1, 2);
+        dataBaseConfig.addParkingSpots(ParkingType.BIKE, 3, 1);
+        directory = Files.createTempDirectory("export");
+        // Small chunks so that a day file is made of several blocks
+        ticketExportService = new TicketExportService(directory, 2);
+        ticketExportService.ticketBatchDAO.dataBaseConfig = dataBaseConfig;
+        // Tickets 1 to 5 leave on the first day, 6 is still parked, 7 and 8 leave the next day
+        saveTicket(1, "AAA", DAY_1 + " 10:00:00", DAY_1 + " 11:00:00", false, 1.5);
+        saveTicket(1, "AAA", DAY_1 + " 12:00:00", DAY_1 + " 13:00:00", true, 1.425);
+        saveTicket(3, "BBB", DAY_1 + " 09:00:00", DAY_1 + " 09:20:00", false, 0);
+        saveTicket(2, "CCC", DAY_1 + " 14:00:00", DAY_1 + " 16:30:00", false, 3.75);
+        saveTicket(2, "CCC", DAY_1 + " 17:00:00", DAY_1 + " 18:00:00", false, 1.5);
+        saveTicket(1, "DDD", DAY_1 + " 20:00:00", null, false, 0);
+        saveTicket(3, "EEE", DAY_2 + " 08:00:00", DAY_2 + " 10:00:00", true, 1.9);
+        saveTicket(2, "FFF", DAY_1 + " 23:00:00", DAY_2 + " 01:00:00", false, 3);
+    }
+
+    @AfterEach
+    void tearDownPerTest() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void export_stopsBeforeOpenTicket_andWritesColumnsOfEachDay() throws Exception {
+        ExportReport report = ticketExportService.export();
+
+        assertTrue(report.isCompleted());
+        assertEquals(5, report.getExportedCount());
+        assertEquals(1, report.getFileCount());
+        assertEquals(5, report.getLastExportedId());
+        List<TicketHistoryChunk> blocks = readDay(DAY_1);
+        assertEquals(3, blocks.size());
+        TicketHistoryChunk first = blocks.get(0);
+        assertArrayEquals(new int[] {1, 2}, first.getIds());
+        assertArrayEquals(new String[] {"AAA", "AAA"}, first.getVehicleRegNumbers());
+        assertEquals(Timestamp.valueOf(DAY_1 + " 12:00:00").getTime(), first.getInTimes()[1]);
+        assertEquals(Timestamp.valueOf(DAY_1 + " 13:00:00").getTime(), first.getOutTimes()[1]);
+        assertTrue(first.getDiscounts()[1]);
+        assertEquals(1.425, first.getPrices()[1]);
+        TicketHistoryChunk second = blocks.get(1);
+        assertEquals(3, second.getParkingNumbers()[0]);
+        assertEquals(ParkingType.BIKE.ordinal(), second.getParkingTypes()[0]);
+        assertEquals(ParkingType.CAR.ordinal(), second.getParkingTypes()[1]);
+        assertEquals("5", new String(Files.readAllBytes(
+                directory.resolve(ExportConstants.CHECKPOINT_FILE))));
+    }
+
+    @Test
+    void export_again_sendsOnlyTicketsClosedSince() throws Exception {
+        ticketExportService.export();
+        try (Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET)) {
+            ps.setDouble(1, 1.5);
+            ps.setTimestamp(2, Timestamp.valueOf(DAY_2 + " 07:00:00"));
+            ps.setInt(3, 6);
+            ps.executeUpdate();
+        }
+
+        ExportReport report = ticketExportService.export();
+
+        assertTrue(report.isCompleted());
+        assertEquals(3, report.getExportedCount());
+        assertEquals(8, report.getLastExportedId());
+        assertEquals(5, countTickets(readDay(DAY_1)));
+        List<TicketHistoryChunk> secondDay = readDay(DAY_2);
+        assertEquals(3, countTickets(secondDay));
+        assertEquals(6, secondDay.get(0).getIds()[0]);
+    }
+
+    @Test
+    void export_afterStopBeforeCheckpoint_doesNotDuplicateTickets() throws Exception {
+        ticketExportService.export();
+        // As if the export had stopped after writing tickets 3 to 5 but before checkpointing them
+        Files.write(directory.resolve(ExportConstants.CHECKPOINT_FILE), "2".getBytes());
+
+        ExportReport report = ticketExportService.export();
+
+        assertEquals(3, report.getExportedCount());
+        List<Integer> ids = new ArrayList<>();
+        for (TicketHistoryChunk block : readDay(DAY_1)) {
+            for (int id : block.getIds()) {
+                ids.add(id);
+            }
+        }
+        assertEquals(5, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i + 1, (int) ids.get(i));
+        }
+    }
+
+    private List<TicketHistoryChunk> readDay(String day) throws IOException {
+        List<TicketHistoryChunk> blocks = new ArrayList<>();
+        TicketColumnFile.read(directory.resolve(
+                ExportConstants.FILE_PREFIX + day + ExportConstants.FILE_SUFFIX), blocks::add);
+        return blocks;
+    }
+
+    private static int countTickets(List<TicketHistoryChunk> blocks) {
+        int count = 0;
+        for (TicketHistoryChunk block : blocks) {
+            count += block.getSize();
+        }
+        return count;
+    }
+
+    private void saveTicket(int parkingNumber, String vehicleRegNumber, String inTime,
+            String outTime, boolean discount, double price) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+            ps.setInt(1, parkingNumber);
+            ps.setString(2, vehicleRegNumber);
+            ps.setDouble(3, price);
+            ps.setTimestamp(4, Timestamp.valueOf(inTime));
+            ps.setTimestamp(5, outTime == null ? null : Timestamp.valueOf(outTime));
+            ps.setBoolean(6, discount);
+            ps.executeUpdate();
+        }
+    }
+}
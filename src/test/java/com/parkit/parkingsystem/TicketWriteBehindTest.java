@@ -0,0 +1,262 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ConnectionState;
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketWriteBehind;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.EntryRequest;
+import com.parkit.parkingsystem.model.ExitRequest;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateService;
+import com.parkit.parkingsystem.util.AppendOnlyJournal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TicketWriteBehindTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final int JOURNAL_CAPACITY = 1024 * 1024;
+
+    private Path directory;
+
+    @AfterEach
+    void deleteJournals() throws Exception {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+
+    @BeforeEach
+    void setUpPerTest() throws Exception {
+        directory = Files.createTempDirectory("journal");
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("writeBehind");
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(ParkingType.CAR, 1, 100);
+    }
+
+    @Test
+    void gateFlow_withWriteBehind_writesEveryTicketOnFlush() throws Exception {
+        try (AppendOnlyJournal journal = newJournal()) {
+            TicketWriteBehind ticketWriteBehind = newWriteBehind(journal);
+            ticketWriteBehind.start();
+            GateService gateService = newGateService(ticketWriteBehind);
+            long inTime = System.currentTimeMillis() - 2 * HOUR;
+
+            for (int i = 0; i < 50; i++) {
+                gateService.enter(new EntryRequest(ParkingType.CAR, "PLATE" + i, new Date(inTime)));
+            }
+            for (int i = 0; i < 25; i++) {
+                gateService.exit(new ExitRequest("PLATE" + i, new Date(inTime + 2 * HOUR)));
+            }
+            assertTrue(ticketWriteBehind.flush(5000));
+            ticketWriteBehind.stop(1000);
+
+            assertEquals(50, count("select count(*) from ticket"));
+            assertEquals(25, count("select count(*) from ticket where OUT_TIME is not null"
+                    + " and PRICE = 3.0"));
+            assertTrue(!journal.hasUnapplied());
+        }
+    }
+
+    @Test
+    void start_afterCrash_replaysJournalWithoutDuplicates() throws Exception {
+        Date inTime = new Date(System.currentTimeMillis() - 2 * HOUR);
+        try (AppendOnlyJournal journal = newJournal()) {
+            // Never started, as if the process died before the writer sent anything
+            TicketWriteBehind crashed = newWriteBehind(journal);
+            crashed.submitSave(newTicket("ABCDEF", inTime));
+            crashed.submitSave(newTicket("GHIJKL", inTime));
+            Ticket exited = newTicket("GHIJKL", inTime);
+            exited.setOutTime(new Date(inTime.getTime() + 2 * HOUR));
+            exited.setPrice(3.0);
+            crashed.submitUpdate(exited);
+        }
+        // The first insert did reach the database before the crash
+        TicketWriteBehind sent = newWriteBehind(null);
+        sent.start();
+        sent.submitSave(newTicket("ABCDEF", inTime));
+        assertTrue(sent.flush(5000));
+        sent.stop(1000);
+
+        try (AppendOnlyJournal journal = newJournal()) {
+            TicketWriteBehind ticketWriteBehind = newWriteBehind(journal);
+            ticketWriteBehind.start();
+            assertTrue(ticketWriteBehind.flush(5000));
+            ticketWriteBehind.stop(1000);
+        }
+
+        assertEquals(2, count("select count(*) from ticket"));
+        assertEquals(1, count("select count(*) from ticket where VEHICLE_REG_NUMBER = 'GHIJKL'"
+                + " and PRICE = 3.0"));
+        assertEquals(1, count("select NB_VISIT from vehicle_summary"
+                + " where VEHICLE_REG_NUMBER = 'ABCDEF'"));
+    }
+
+    @Test
+    void start_afterCrash_replayedExitCountedOnceInSummary() throws Exception {
+        Date inTime = new Date(System.currentTimeMillis() - 2 * HOUR);
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        Ticket ticket = newTicket("ABCDEF", inTime);
+        assertTrue(ticketDAO.saveTicket(ticket));
+        ticket.setOutTime(new Date(inTime.getTime() + 2 * HOUR));
+        ticket.setPrice(3.0);
+        try (AppendOnlyJournal journal = newJournal()) {
+            // Never started, the exit stays in the journal
+            newWriteBehind(journal).submitUpdate(ticket);
+        }
+        // The exit did reach the database before the crash
+        TicketWriteBehind sent = newWriteBehind(null);
+        sent.start();
+        sent.submitUpdate(ticket);
+        assertTrue(sent.flush(5000));
+        sent.stop(1000);
+
+        try (AppendOnlyJournal journal = newJournal()) {
+            TicketWriteBehind ticketWriteBehind = newWriteBehind(journal);
+            ticketWriteBehind.start();
+            assertTrue(ticketWriteBehind.flush(5000));
+            ticketWriteBehind.stop(1000);
+        }
+
+        assertEquals(3, count("select TOTAL_SPENT from vehicle_summary"
+                + " where VEHICLE_REG_NUMBER = 'ABCDEF'"));
+    }
+
+    @Test
+    void flush_withRejectedTicketInsert_releasesItsParkingSpot() throws Exception {
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.loadAvailableSpots();
+        TicketWriteBehind ticketWriteBehind = newWriteBehind(null);
+        ticketWriteBehind.parkingSpotDAO = parkingSpotDAO;
+        ticketWriteBehind.start();
+        assertEquals(1, parkingSpotDAO.reserveNextAvailableSlot(ParkingType.CAR));
+
+        // Too long for VEHICLE_REG_NUMBER, the database rejects the insert
+        ticketWriteBehind.submitSave(newTicket("ABCDEFGHIJKLMNOP", new Date()));
+        assertTrue(ticketWriteBehind.flush(5000));
+        ticketWriteBehind.stop(1000);
+
+        assertEquals(0, count("select count(*) from ticket"));
+        assertEquals(1, count("select count(*) from parking where PARKING_NUMBER = 1"
+                + " and AVAILABLE = true"));
+        assertEquals(1, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    void written_withSmallBacklogLeft_endsOfflineModeButKeepsSpotUpdatesInOrder()
+            throws Exception {
+        // Lets the writer send one batch per permit
+        Semaphore batches = new Semaphore(1);
+        EmbeddedDataBaseTestConfig throttledDataBaseConfig =
+                new EmbeddedDataBaseTestConfig("writeBehind") {
+                    @Override
+                    public Connection getConnection()
+                            throws ClassNotFoundException, SQLException {
+                        if ("ticket-write-behind".equals(Thread.currentThread().getName())) {
+                            batches.acquireUninterruptibly();
+                        }
+                        return super.getConnection();
+                    }
+                };
+        ConnectionState connectionState = new ConnectionState();
+        connectionState.setOffline(true);
+        TicketWriteBehind ticketWriteBehind = new TicketWriteBehind(null, 16, 1, 5);
+        ticketWriteBehind.dataBaseConfig = throttledDataBaseConfig;
+        ticketWriteBehind.connectionState = connectionState;
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.connectionState = connectionState;
+        parkingSpotDAO.ticketWriteBehind = ticketWriteBehind;
+        parkingSpotDAO.loadAvailableSpots();
+        for (int parkingNumber = 1; parkingNumber <= 3; parkingNumber++) {
+            ticketWriteBehind.submitParkingUpdate(
+                    new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        }
+
+        ticketWriteBehind.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (connectionState.isOffline() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertFalse(connectionState.isOffline());
+        assertEquals(2, ticketWriteBehind.getPendingCount());
+        // Still queued behind the offline updates rather than written ahead of them
+        assertTrue(parkingSpotDAO.updateParking(new ParkingSpot(1, ParkingType.CAR, true)));
+        assertEquals(3, ticketWriteBehind.getPendingCount());
+        batches.release(100);
+        assertTrue(ticketWriteBehind.flush(5000));
+        ticketWriteBehind.stop(1000);
+        assertFalse(ticketWriteBehind.hasPendingParkingUpdates());
+        assertEquals(2, count("select count(*) from parking where AVAILABLE = false"));
+        assertEquals(1, count("select count(*) from parking where PARKING_NUMBER = 1"
+                + " and AVAILABLE = true"));
+    }
+
+    private AppendOnlyJournal newJournal() throws Exception {
+        return new AppendOnlyJournal(directory.resolve("tickets.dat"), JOURNAL_CAPACITY, false);
+    }
+
+    private TicketWriteBehind newWriteBehind(AppendOnlyJournal journal) {
+        TicketWriteBehind ticketWriteBehind = new TicketWriteBehind(journal, 16, 8, 5);
+        ticketWriteBehind.dataBaseConfig = dataBaseConfig;
+        return ticketWriteBehind;
+    }
+
+    private GateService newGateService(TicketWriteBehind ticketWriteBehind) {
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.loadAvailableSpots();
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO.ticketWriteBehind = ticketWriteBehind;
+        ticketDAO.loadKnownPlates();
+        ticketDAO.loadOpenTickets();
+        return new GateService(parkingSpotDAO, ticketDAO, new FareCalculatorService(),
+                new UnitOfWork(dataBaseConfig));
+    }
+
+    private static Ticket newTicket(String vehicleRegNumber, Date inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(inTime);
+        return ticket;
+    }
+
+    private int count(String query) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(query);
+                ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
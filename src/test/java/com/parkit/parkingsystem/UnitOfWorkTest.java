@@ -0,0 +1,125 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.util.InputReaderUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class UnitOfWorkTest {
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+    private UnitOfWork unitOfWork;
+
+    @BeforeEach
+    void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("unitOfWork");
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(ParkingType.CAR, 1, 3);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.loadAvailableSpots();
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        unitOfWork = new UnitOfWork(dataBaseConfig);
+    }
+
+    @Test
+    void execute_whenWorkSucceeds_commitsEveryStatementAndRunsAfterCommit() throws Exception {
+        int parkingNumber = unitOfWork.execute(() -> {
+            int reserved = parkingSpotDAO.reserveNextAvailableSlot(ParkingType.CAR);
+            ticketDAO.saveTicket(newTicket(reserved));
+            return reserved;
+        });
+
+        assertEquals(1, parkingNumber);
+        assertFalse(isAvailable(1));
+        assertEquals(1, ticketDAO.getNbTicket("ABCDEF"));
+        assertEquals(2, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(2, parkingSpotDAO.getFreeSpotCount(ParkingType.CAR));
+        assertEquals(1, parkingSpotDAO.getOccupiedSpotCount(ParkingType.CAR));
+    }
+
+    @Test
+    void execute_whenWorkFails_rollsBackEveryStatementAndRunsAfterRollback() throws Exception {
+        AtomicBoolean rolledBack = new AtomicBoolean(false);
+
+        assertThrows(SQLException.class, () -> unitOfWork.execute(() -> {
+            int reserved = parkingSpotDAO.reserveNextAvailableSlot(ParkingType.CAR);
+            ticketDAO.saveTicket(newTicket(reserved));
+            UnitOfWork.afterRollback(() -> rolledBack.set(true));
+            throw new SQLException("Simulated failure");
+        }));
+
+        assertTrue(rolledBack.get());
+        assertTrue(isAvailable(1));
+        assertEquals(0, ticketDAO.getNbTicket("ABCDEF"));
+        assertEquals(1, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(3, parkingSpotDAO.getFreeSpotCount(ParkingType.CAR));
+        assertEquals(0, parkingSpotDAO.getOccupiedSpotCount(ParkingType.CAR));
+    }
+
+    @Test
+    void processIncomingVehicle_whenTicketCannotBeSaved_leavesTheSpotFree() throws Exception {
+        InputReaderUtil inputReaderUtil = mock(InputReaderUtil.class);
+        when(inputReaderUtil.readSelection()).thenReturn(1);
+        when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
+        TicketDAO failingTicketDAO = new TicketDAO() {
+            @Override
+            public boolean saveTicket(Ticket ticket) {
+                return false;
+            }
+        };
+        failingTicketDAO.dataBaseConfig = dataBaseConfig;
+        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO,
+                failingTicketDAO, new FareCalculatorService(), unitOfWork);
+
+        assertThrows(SQLException.class, () -> parkingService.processIncomingVehicle());
+
+        assertTrue(isAvailable(1));
+        assertEquals(1, parkingSpotDAO.getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    private Ticket newTicket(int parkingNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+
+    private boolean isAvailable(int parkingNumber) throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(
+                        "select AVAILABLE from parking where PARKING_NUMBER = ?")) {
+            ps.setInt(1, parkingNumber);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getBoolean(1);
+            }
+        }
+    }
+}
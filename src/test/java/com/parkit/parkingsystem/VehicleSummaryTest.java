@@ -0,0 +1,135 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.UnitOfWork;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.VehicleSummaryDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseTestConfig;
+import com.parkit.parkingsystem.model.EntryRequest;
+import com.parkit.parkingsystem.model.ExitRequest;
+import com.parkit.parkingsystem.model.VehicleSummary;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.service.GateService;
+import com.parkit.parkingsystem.service.TicketArchiveService;
+import com.parkit.parkingsystem.service.VehicleSummaryBackfillService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VehicleSummaryTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private EmbeddedDataBaseTestConfig dataBaseConfig;
+    private VehicleSummaryDAO vehicleSummaryDAO;
+
+    @BeforeEach
+    void setUpPerTest() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseTestConfig("summary");
+        dataBaseConfig.createSchema();
+        dataBaseConfig.addParkingSpots(ParkingType.CAR, 1, 2);
+        vehicleSummaryDAO = new VehicleSummaryDAO();
+        vehicleSummaryDAO.dataBaseConfig = dataBaseConfig;
+    }
+
+    @Test
+    void exit_afterEntry_summaryHoldsVisitAndSpend() throws Exception {
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        GateService gateService = new GateService(parkingSpotDAO, ticketDAO,
+                new FareCalculatorService(), new UnitOfWork(dataBaseConfig));
+        // Whole seconds, MySQL DATETIME drops the milliseconds
+        long inTime = (System.currentTimeMillis() - 2 * HOUR) / 1000 * 1000;
+
+        gateService.enter(new EntryRequest(ParkingType.CAR, "ABCDEF", new Date(inTime)));
+        gateService.exit(new ExitRequest("ABCDEF", new Date(inTime + 2 * HOUR)));
+
+        VehicleSummary summary = vehicleSummaryDAO.getVehicleSummary("ABCDEF");
+        assertEquals(1, summary.getVisitCount());
+        assertEquals(3.0, summary.getTotalSpent());
+        assertEquals(inTime + 2 * HOUR, summary.getLastVisit().getTime());
+        assertEquals(1, ticketDAO.getNbTicket("ABCDEF"));
+        assertNull(vehicleSummaryDAO.getVehicleSummary("GHIJKL"));
+    }
+
+    @Test
+    void backfill_liveAndArchivedTickets_summarizedOnceWhenRunTwice() throws Exception {
+        long old = (System.currentTimeMillis() - 100 * 24 * HOUR) / 1000 * 1000;
+        saveTicket("ABCDEF", old, old + HOUR, 1.5);
+        saveTicket("ABCDEF", old + 24 * HOUR, old + 26 * HOUR, 3.0);
+        saveTicket("GHIJKL", old, null, 0);
+        saveTicket("MNOPQR", old + 48 * HOUR, old + 49 * HOUR, 1.5);
+        TicketArchiveService ticketArchiveService =
+                new TicketArchiveService(new UnitOfWork(dataBaseConfig));
+        ticketArchiveService.ticketArchiveDAO.dataBaseConfig = dataBaseConfig;
+        assertEquals(2, ticketArchiveService.archive());
+        // One plate per batch, so that every batch starts after the previous one
+        VehicleSummaryBackfillService backfillService =
+                new VehicleSummaryBackfillService(new UnitOfWork(dataBaseConfig), 1);
+        backfillService.vehicleSummaryDAO.dataBaseConfig = dataBaseConfig;
+
+        assertEquals(3, backfillService.backfill());
+        assertEquals(3, backfillService.backfill());
+
+        VehicleSummary summary = vehicleSummaryDAO.getVehicleSummary("ABCDEF");
+        assertEquals(2, summary.getVisitCount());
+        assertEquals(4.5, summary.getTotalSpent());
+        assertEquals(old + 26 * HOUR, summary.getLastVisit().getTime());
+        assertEquals(1, vehicleSummaryDAO.getVehicleSummary("GHIJKL").getVisitCount());
+        assertEquals(1, vehicleSummaryDAO.getVehicleSummary("MNOPQR").getVisitCount());
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(ticketDAO.isKnownPlate("ABCDEF"));
+    }
+
+    @Test
+    void migrate_ticketsWrittenBefore_summarizedByMigration() throws Exception {
+        dataBaseConfig.createSchema("6");
+        dataBaseConfig.addParkingSpots(ParkingType.CAR, 1, 2);
+        long old = (System.currentTimeMillis() - 100 * 24 * HOUR) / 1000 * 1000;
+        saveTicket("ABCDEF", old, old + HOUR, 1.5);
+        saveTicket("ABCDEF", old + 24 * HOUR, old + 26 * HOUR, 3.0);
+        saveTicket("GHIJKL", old, null, 0);
+        TicketArchiveService ticketArchiveService =
+                new TicketArchiveService(new UnitOfWork(dataBaseConfig));
+        ticketArchiveService.ticketArchiveDAO.dataBaseConfig = dataBaseConfig;
+        assertEquals(2, ticketArchiveService.archive());
+
+        dataBaseConfig.migrate();
+
+        VehicleSummary summary = vehicleSummaryDAO.getVehicleSummary("ABCDEF");
+        assertEquals(2, summary.getVisitCount());
+        assertEquals(4.5, summary.getTotalSpent());
+        assertEquals(old + 26 * HOUR, summary.getLastVisit().getTime());
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        assertTrue(ticketDAO.loadKnownPlates());
+        assertTrue(ticketDAO.isKnownPlate("GHIJKL"));
+    }
+
+    private void saveTicket(String vehicleRegNumber, long inTime, Long outTime, double price)
+            throws Exception {
+        try (Connection con = dataBaseConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+            ps.setInt(1, 1);
+            ps.setString(2, vehicleRegNumber);
+            ps.setDouble(3, price);
+            ps.setTimestamp(4, new Timestamp(inTime));
+            ps.setTimestamp(5, outTime == null ? null : new Timestamp(outTime));
+            ps.setBoolean(6, false);
+            ps.executeUpdate();
+        }
+    }
+}
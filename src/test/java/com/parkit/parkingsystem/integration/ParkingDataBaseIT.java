@@ -1,5 +1,6 @@
 package com.parkit.parkingsystem.integration;
 
+import com.parkit.parkingsystem.config.UnitOfWork;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
 import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
@@ -46,6 +47,7 @@ public class ParkingDataBaseIT {
     @BeforeAll
     private static void setUp() throws Exception {
         dataBaseTestConfig = new DataBaseTestConfig();
+        dataBaseTestConfig.migrate();
         parkingSpotDAO = new ParkingSpotDAO();
         parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
         ticketDAO = new TicketDAO();
@@ -59,11 +61,13 @@ public class ParkingDataBaseIT {
         when(inputReaderUtil.readSelection()).thenReturn(1);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
         dataBasePrepareService.clearDataBaseEntries();
+        parkingSpotDAO.loadAvailableSpots();
         parkingService = new ParkingService(
                 inputReaderUtil,
                 parkingSpotDAO,
                 ticketDAO,
-                fareCalculatorService);
+                fareCalculatorService,
+                new UnitOfWork(dataBaseTestConfig));
     }
 
     @Test
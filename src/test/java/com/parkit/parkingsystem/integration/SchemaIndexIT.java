@@ -0,0 +1,90 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/*
+ * Runs EXPLAIN on the hot queries of DBConstants against the local test database and checks that
+ * none of them reads a whole table
+ */
+public class SchemaIndexIT {
+
+    private static DataBaseTestConfig dataBaseTestConfig;
+
+    @BeforeAll
+    private static void setUp() throws Exception {
+        dataBaseTestConfig = new DataBaseTestConfig();
+        dataBaseTestConfig.migrate();
+        new DataBasePrepareService().clearDataBaseEntries();
+        // Enough history for the optimizer to prefer the indexes over a scan
+        try (Connection con = dataBaseTestConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET)) {
+            for (int i = 0; i < 500; i++) {
+                ps.setInt(1, 1 + i % 3);
+                ps.setString(2, "PLATE-" + (i % 100));
+                ps.setDouble(3, 1.5);
+                ps.setTimestamp(4, Timestamp.from(Instant.now().minus(i + 2, ChronoUnit.HOURS)));
+                ps.setTimestamp(5, Timestamp.from(Instant.now().minus(i + 1, ChronoUnit.HOURS)));
+                ps.setBoolean(6, false);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @Test
+    public void getNextParkingSpot_usesIndex() throws Exception {
+        assertNoFullScan(DBConstants.GET_NEXT_PARKING_SPOT, "CAR");
+    }
+
+    @Test
+    public void getTicket_usesIndexWithoutSorting() throws Exception {
+        assertNoFullScan(DBConstants.GET_TICKET, "PLATE-1");
+    }
+
+    @Test
+    public void getNbTicket_usesIndex() throws Exception {
+        assertNoFullScan(DBConstants.GET_NB_TICKET, "PLATE-1");
+    }
+
+    @Test
+    public void hasTicket_usesIndex() throws Exception {
+        assertNoFullScan(DBConstants.HAS_TICKET, "PLATE-1");
+    }
+
+    @Test
+    public void getFirstOpenTicketId_usesIndex() throws Exception {
+        assertNoFullScan(DBConstants.GET_FIRST_OPEN_TICKET_ID, null);
+    }
+
+    private void assertNoFullScan(String query, String parameter) throws Exception {
+        try (Connection con = dataBaseTestConfig.getConnection();
+                PreparedStatement ps = con.prepareStatement("EXPLAIN " + query)) {
+            if (parameter != null) {
+                ps.setString(1, parameter);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String table = rs.getString("table");
+                    assertNotEquals("ALL", rs.getString("type"), "Full scan of " + table);
+                    String extra = rs.getString("Extra");
+                    assertFalse(extra != null && extra.contains("filesort"),
+                            "Sort of " + table + " rows: " + extra);
+                }
+            }
+        }
+    }
+}
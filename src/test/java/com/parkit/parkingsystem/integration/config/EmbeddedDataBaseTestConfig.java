@@ -0,0 +1,105 @@
+package com.parkit.parkingsystem.integration.config;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.GarageConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.constants.PoolConstants;
+import org.flywaydb.core.Flyway;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/*
+ * In-memory H2 database running in MySQL mode, lets tests use the real DAOs without a MySQL server
+ */
+public class EmbeddedDataBaseTestConfig extends DataBaseConfig {
+
+    private final String name;
+    private final String garageId;
+
+    public EmbeddedDataBaseTestConfig(String name) {
+        this(name, GarageConstants.DEFAULT_GARAGE_ID);
+    }
+
+    /*
+     * One in-memory database per garage, for the tests routing between garages
+     */
+    public EmbeddedDataBaseTestConfig(String name, String garageId) {
+        this.name = name;
+        this.garageId = garageId;
+    }
+
+    @Override
+    public String getGarageId() {
+        return garageId;
+    }
+
+    /*
+     * Public so that a test can point another configuration to this database
+     */
+    @Override
+    public String getJdbcUrl() {
+        return "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    @Override
+    protected String getUsername() {
+        return "sa";
+    }
+
+    @Override
+    protected String getPassword() {
+        return "";
+    }
+
+    @Override
+    protected String getDriverClassName() {
+        return "org.h2.Driver";
+    }
+
+    /*
+     * H2 keeps the statements parsed per session in its query cache
+     */
+    @Override
+    protected Properties getDataSourceProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("QUERY_CACHE_SIZE", String.valueOf(PoolConstants.STATEMENT_CACHE_SIZE));
+        return properties;
+    }
+
+    /*
+     * Drops everything and runs the migrations again, each test starts from an empty schema
+     */
+    public void createSchema() {
+        Flyway flyway = getFlywayConfiguration().cleanDisabled(false).load();
+        flyway.clean();
+        flyway.migrate();
+    }
+
+    /*
+     * Drops everything and runs the migrations up to targetVersion, for the tests of a migration
+     * that has data to convert
+     */
+    public void createSchema(String targetVersion) {
+        Flyway flyway = getFlywayConfiguration().cleanDisabled(false).target(targetVersion).load();
+        flyway.clean();
+        flyway.migrate();
+    }
+
+    public void addParkingSpots(ParkingType parkingType, int firstNumber, int count)
+            throws SQLException {
+        try (Connection con = getDataSource().getConnection();
+                PreparedStatement ps = con.prepareStatement(
+                        "insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(?,true,?)")) {
+            for (int parkingNumber = firstNumber; parkingNumber < firstNumber + count;
+                    parkingNumber++) {
+                ps.setInt(1, parkingNumber);
+                ps.setString(2, parkingType.toString());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+}